@@ -0,0 +1,73 @@
+package com.musala.drones;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SyncTaskExecutor;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.time.Duration;
+
+/**
+ * Database bound requests return {@link java.util.concurrent.CompletableFuture}s completed on the request executor,
+ * so Tomcat workers are released while they wait for connections, locks and queries.
+ * With {@code web.async.enabled=false} they are completed on the worker itself.
+ */
+@Configuration
+public class AsyncConfiguration implements WebMvcConfigurer {
+
+    private final Duration timeout;
+
+    public AsyncConfiguration(@Value("${web.async.timeout}") Duration timeout) {
+        this.timeout = timeout;
+    }
+
+    @Bean
+    public TaskExecutor requestExecutor(@Value("${web.async.enabled}") boolean enabled,
+                                        @Value("${web.async.threads}") int threads,
+                                        @Value("${web.async.queueCapacity}") int queueCapacity) {
+        if (!enabled) {
+            return new SyncTaskExecutor();
+        }
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix("request-");
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        // requests over the queue capacity are rejected with 503 instead of waiting
+        executor.setQueueCapacity(queueCapacity);
+        return executor;
+    }
+
+    /**
+     * Reads changed drones and drains event buffers of subscribers, see {@link com.musala.drones.service.DroneEventBroadcaster}.
+     * There is at most one task per subscriber in the queue.
+     */
+    @Bean
+    public TaskExecutor eventExecutor(@Value("${drone.events.threads}") int threads) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix("events-");
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        return executor;
+    }
+
+    /**
+     * Reads drones changed by committed writes into the {@link com.musala.drones.service.FleetIndex}, one refresh at a time.
+     */
+    @Bean
+    public TaskExecutor indexExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix("index-");
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        return executor;
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setDefaultTimeout(timeout.toMillis());
+    }
+}
@@ -1,17 +1,43 @@
 package com.musala.drones;
 
 import com.opentable.db.postgres.embedded.EmbeddedPostgres;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
 
-import javax.sql.DataSource;
+import java.io.IOException;
 
+/**
+ * Embedded PostgreSQL behind a Hikari pool configured with {@code spring.datasource.hikari.*}.
+ * With the {@code external-db} profile the application connects to the database from {@code spring.datasource.url}
+ * through Spring Boot's own pool instead.
+ */
 @Configuration
+@Profile("!external-db")
 public class DBConfiguration {
 
+    /**
+     * Starts on a fresh temporary data directory, unless {@code db.embedded.dataDirectory} is set. An existing data
+     * directory is reused as is, so the database keeps its data and migrations between restarts.
+     */
     @Bean
-    public DataSource inMemoryDS() throws Exception {
-        return EmbeddedPostgres.builder()
-                .start().getPostgresDatabase();
+    public EmbeddedPostgres embeddedPostgres(@Value("${db.embedded.dataDirectory}") String dataDirectory) throws IOException {
+        EmbeddedPostgres.Builder builder = EmbeddedPostgres.builder();
+        if (!dataDirectory.isEmpty()) {
+            builder.setDataDirectory(dataDirectory)
+                    .setCleanDataDirectory(false);
+        }
+        return builder.start();
+    }
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource inMemoryDS(EmbeddedPostgres embeddedPostgres) {
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setDataSource(embeddedPostgres.getPostgresDatabase());
+        return dataSource;
     }
 }
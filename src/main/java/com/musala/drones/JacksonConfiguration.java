@@ -0,0 +1,21 @@
+package com.musala.drones;
+
+import com.fasterxml.jackson.databind.Module;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Jackson modules are picked up by the application's {@link com.fasterxml.jackson.databind.ObjectMapper}.
+ */
+@Configuration
+public class JacksonConfiguration {
+
+    /**
+     * Replaces reflective getter calls and constructor invocations of bean (de)serializers with generated lambdas.
+     */
+    @Bean
+    public Module blackbirdModule() {
+        return new BlackbirdModule();
+    }
+}
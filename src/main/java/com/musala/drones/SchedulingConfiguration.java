@@ -1,9 +1,25 @@
 package com.musala.drones;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.TaskExecutor;
 import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
 @Configuration
 @EnableScheduling
 public class SchedulingConfiguration {
+
+    /**
+     * Workers auditing partitions of the fleet in parallel, every audit pass submits at most one task per thread.
+     */
+    @Bean
+    public TaskExecutor auditExecutor(@Value("${audit.battery.threads}") int threads) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix("audit-");
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        return executor;
+    }
 }
@@ -0,0 +1,35 @@
+package com.musala.drones;
+
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.MethodIntrospector;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.scheduling.annotation.Scheduled;
+
+@Configuration
+public class StartupConfiguration {
+
+    /**
+     * With lazy initialization nothing would ever ask for the scheduled beans, so they are created on startup anyway.
+     */
+    @Bean
+    static LazyInitializationExcludeFilter scheduledBeansExcludeFilter() {
+        return (beanName, beanDefinition, beanType) -> !MethodIntrospector.selectMethods(beanType,
+                (MethodIntrospector.MetadataLookup<Scheduled>) method -> AnnotatedElementUtils.findMergedAnnotation(method, Scheduled.class))
+                .isEmpty();
+    }
+
+    /**
+     * Stops the application as soon as it is ready, used to record a class data sharing archive of the startup.
+     */
+    @Bean
+    @ConditionalOnProperty("startup.exitOnReady")
+    ApplicationListener<ApplicationReadyEvent> exitOnReadyListener() {
+        return event -> System.exit(SpringApplication.exit(event.getApplicationContext()));
+    }
+}
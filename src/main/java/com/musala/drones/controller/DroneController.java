@@ -1,42 +1,164 @@
 package com.musala.drones.controller;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.musala.drones.entity.Model;
+import com.musala.drones.entity.State;
 import com.musala.drones.model.DroneDto;
+import com.musala.drones.model.DroneEventDto;
+import com.musala.drones.model.DroneList;
 import com.musala.drones.model.MedicationList;
 import com.musala.drones.model.OutputResult;
+import com.musala.drones.model.TelemetryDto;
+import com.musala.drones.model.TelemetryList;
+import com.musala.drones.model.TelemetryResult;
+import com.musala.drones.model.TransitionRequest;
+import com.musala.drones.service.DroneEventBroadcaster;
 import com.musala.drones.service.DroneService;
+import com.musala.drones.service.FleetExporter;
+import com.musala.drones.service.IdempotentRequests;
+import com.musala.drones.service.PlanningMode;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.lang.Nullable;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
+import javax.validation.Validator;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
 
+/**
+ * Requests which go to the database are completed on the request executor, see {@link com.musala.drones.AsyncConfiguration}.
+ * Cached lookups and telemetry ingest stay on the Tomcat worker.
+ */
 @RestController
 @RequestMapping("/drone")
+@Slf4j
 public class DroneController {
 
+    private static final Duration DEFAULT_HISTORY_RANGE = Duration.ofHours(1);
+    private static final int TELEMETRY_CHUNK_SIZE = 1000;
+    private static final int EXPORT_BUFFER_SIZE = 8192;
+    private static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+
     private final DroneService droneService;
+    private final ObjectReader telemetryReader;
+    private final Validator validator;
+    private final TaskExecutor requestExecutor;
+    private final DroneEventBroadcaster eventBroadcaster;
+    private final Duration eventsTimeout;
+    private final FleetExporter fleetExporter;
+    private final IdempotentRequests idempotentRequests;
 
-    public DroneController(DroneService droneService) {
+    public DroneController(DroneService droneService,
+                           ObjectMapper objectMapper,
+                           Validator validator,
+                           TaskExecutor requestExecutor,
+                           DroneEventBroadcaster eventBroadcaster,
+                           @Value("${drone.events.timeout}") Duration eventsTimeout,
+                           FleetExporter fleetExporter,
+                           IdempotentRequests idempotentRequests) {
         this.droneService = droneService;
+        this.telemetryReader = objectMapper.readerFor(TelemetryDto.class);
+        this.validator = validator;
+        this.requestExecutor = requestExecutor;
+        this.eventBroadcaster = eventBroadcaster;
+        this.eventsTimeout = eventsTimeout;
+        this.fleetExporter = fleetExporter;
+        this.idempotentRequests = idempotentRequests;
     }
 
     @PutMapping("/register")
-    public OutputResult register(@Valid @RequestBody DroneDto drone) {
-        return droneService.registerDrone(drone);
+    public CompletableFuture<OutputResult> register(@RequestHeader(value = IDEMPOTENCY_KEY, required = false) String idempotencyKey,
+                                                    @Valid @RequestBody DroneDto drone) {
+        return idempotent(idempotencyKey, "register", drone, () -> droneService.registerDrone(drone));
+    }
+
+    @PutMapping("/register/batch")
+    public CompletableFuture<OutputResult> registerBatch(@Valid @RequestBody DroneList droneList) {
+        return async(() -> droneService.registerDrones(droneList.getDrones()));
     }
 
     @PostMapping("/{serial}/load")
-    public OutputResult loadDrone(@PathVariable("serial") String serial, @Valid @RequestBody MedicationList medicationList) {
-        return droneService.loadDrone(serial, medicationList.getMedications());
+    public CompletableFuture<OutputResult> loadDrone(@PathVariable("serial") String serial,
+                                                     @RequestHeader(value = IDEMPOTENCY_KEY, required = false) String idempotencyKey,
+                                                     @Valid @RequestBody MedicationList medicationList) {
+        return idempotent(idempotencyKey, "load " + serial, medicationList,
+                () -> droneService.loadDrone(serial, medicationList.getMedications()));
     }
 
+    @PostMapping("/plan")
+    public CompletableFuture<OutputResult> planLoading(@RequestParam(value = "mode", defaultValue = "FIRST_FIT") PlanningMode mode,
+                                                       @Valid @RequestBody MedicationList medicationList) {
+        return async(() -> droneService.planLoading(medicationList.getMedications(), mode));
+    }
+
+    /**
+     * Returns all available drones unless {@code size} is given, e.g. {@code ?page=0&size=50&sort=batteryCapacity,desc}.
+     * With {@code weight} only drones which can carry that many grams are returned.
+     */
     @GetMapping("/available")
-    public OutputResult availableDrones() {
-        return droneService.getAvailableDronesForLoading();
+    public CompletableFuture<OutputResult> availableDrones(@RequestParam(value = "weight", defaultValue = "0") int weight,
+                                                           @RequestParam(value = "page", required = false) Integer page,
+                                                           @RequestParam(value = "size", required = false) Integer size,
+                                                           Sort sort) {
+        if ((page != null && page < 0) || (size != null && size < 1)) {
+            return CompletableFuture.completedFuture(OutputResult.error("Page number can't be negative and page size should be positive"));
+        }
+        Pageable pageable;
+        if (size != null) {
+            pageable = PageRequest.of(page != null ? page : 0, size, sort);
+        } else {
+            pageable = sort.isSorted() ? PageRequest.of(0, Integer.MAX_VALUE, sort) : Pageable.unpaged();
+        }
+        return async(() -> droneService.getAvailableDronesForLoading(weight, pageable));
+    }
+
+    @PostMapping("/{serial}/state")
+    public CompletableFuture<OutputResult> transitionDrone(@PathVariable("serial") String serial, @RequestParam("to") State to) {
+        return async(() -> droneService.transitionDrone(serial, to));
+    }
+
+    @PostMapping("/transitions")
+    public CompletableFuture<OutputResult> transitionDrones(@Valid @RequestBody TransitionRequest request) {
+        return async(() -> droneService.transitionDrones(request));
+    }
+
+    @GetMapping("/capacity")
+    public CompletableFuture<OutputResult> getCapacity(@RequestParam("weight") int weight) {
+        return async(() -> droneService.getCapacity(weight));
     }
 
     @GetMapping("/{serial}/medications")
@@ -49,4 +171,132 @@ public class DroneController {
         return droneService.getBatteryLevel(serial);
     }
 
+    @GetMapping("/{serial}/battery/history")
+    public CompletableFuture<OutputResult> getBatteryHistory(@PathVariable("serial") String serial,
+                                                             @RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+                                                             @RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to) {
+        Instant end = to != null ? to : Instant.now();
+        Instant start = from != null ? from : end.minus(DEFAULT_HISTORY_RANGE);
+        return async(() -> droneService.getBatteryHistory(serial, start, end));
+    }
+
+    @PostMapping(value = "/telemetry", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public OutputResult reportTelemetry(@Valid @RequestBody TelemetryList telemetryList) {
+        return droneService.reportTelemetry(telemetryList.getReports());
+    }
+
+    /**
+     * Accepts one report per line and passes them on in chunks while the body is still being read.
+     * Unlike the JSON variant, malformed or not valid lines are skipped and counted as rejected.
+     */
+    @PostMapping(value = "/telemetry", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public OutputResult reportTelemetryStream(InputStream body) throws IOException {
+        BufferedReader lines = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        List<TelemetryDto> chunk = new ArrayList<>(TELEMETRY_CHUNK_SIZE);
+        int accepted = 0;
+        int rejected = 0;
+        String line;
+        while ((line = lines.readLine()) != null) {
+            if (line.isBlank()) {
+                continue;
+            }
+            TelemetryDto report = parseTelemetry(line);
+            if (report == null) {
+                rejected++;
+                continue;
+            }
+            chunk.add(report);
+            if (chunk.size() == TELEMETRY_CHUNK_SIZE) {
+                droneService.reportTelemetry(chunk);
+                accepted += chunk.size();
+                chunk = new ArrayList<>(TELEMETRY_CHUNK_SIZE);
+            }
+        }
+        if (!chunk.isEmpty()) {
+            droneService.reportTelemetry(chunk);
+            accepted += chunk.size();
+        }
+        return OutputResult.success(new TelemetryResult(accepted, rejected));
+    }
+
+    /**
+     * Streams drone events as server-sent events named by their type, optionally only of the given drones, states
+     * or models, e.g. {@code ?state=LOADING&state=LOADED&model=Heavyweight}. A client which doesn't keep up with
+     * events is disconnected and is expected to reconnect.
+     */
+    @GetMapping(value = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter events(@RequestParam(value = "serial", required = false) Set<String> serials,
+                             @RequestParam(value = "state", required = false) Set<State> states,
+                             @RequestParam(value = "model", required = false) Set<Model> models) {
+        Predicate<DroneEventDto> filter = event -> (serials == null || serials.contains(event.getSerialNumber()))
+                && (states == null || states.contains(event.getState()))
+                && (models == null || models.contains(event.getModel()));
+        SseEmitter emitter = new SseEmitter(eventsTimeout.toMillis());
+        DroneEventBroadcaster.Subscription subscription = eventBroadcaster.subscribe(filter, new DroneEventBroadcaster.EventSink() {
+            @Override
+            public void send(DroneEventDto event) throws IOException {
+                emitter.send(SseEmitter.event().name(event.getType().name()).data(event, MediaType.APPLICATION_JSON));
+            }
+
+            @Override
+            public void evicted() {
+                emitter.complete();
+            }
+        });
+        emitter.onCompletion(() -> eventBroadcaster.unsubscribe(subscription));
+        emitter.onTimeout(() -> eventBroadcaster.unsubscribe(subscription));
+        emitter.onError(e -> eventBroadcaster.unsubscribe(subscription));
+        return emitter;
+    }
+
+    /**
+     * Exports the whole fleet as newline delimited JSON, gzip compressed if the client accepts it. The export is
+     * written while the fleet is read on the Tomcat worker, the request executor is meant for short requests.
+     */
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public void exportFleet(@RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+                            HttpServletResponse response) throws IOException {
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        if (acceptEncoding != null && acceptEncoding.contains("gzip")) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+            response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+            // sync flush, so flushing the export flushes what is compressed so far
+            try (OutputStream output = new GZIPOutputStream(response.getOutputStream(), EXPORT_BUFFER_SIZE, true)) {
+                fleetExporter.export(output);
+            }
+        } else {
+            fleetExporter.export(response.getOutputStream());
+        }
+    }
+
+    private CompletableFuture<OutputResult> async(Supplier<OutputResult> request) {
+        return CompletableFuture.supplyAsync(request, requestExecutor);
+    }
+
+    /**
+     * Retries of a request with a recently completed key are answered right away, other requests with a key
+     * run on the request executor like the ones without it.
+     */
+    private CompletableFuture<OutputResult> idempotent(@Nullable String idempotencyKey, String operation, Object body,
+                                                       Supplier<OutputResult> request) {
+        if (idempotencyKey == null) {
+            return async(request);
+        }
+        String fingerprint = idempotentRequests.fingerprint(operation, body);
+        OutputResult replayed = idempotentRequests.replay(idempotencyKey, fingerprint);
+        return replayed != null
+                ? CompletableFuture.completedFuture(replayed)
+                : async(() -> idempotentRequests.execute(idempotencyKey, fingerprint, request));
+    }
+
+    private TelemetryDto parseTelemetry(String line) {
+        try {
+            TelemetryDto report = telemetryReader.readValue(line);
+            return report != null && validator.validate(report).isEmpty() ? report : null;
+        } catch (JsonProcessingException e) {
+            log.debug("Skip telemetry report which can't be parsed: {}", line);
+            return null;
+        }
+    }
+
 }
@@ -11,6 +11,8 @@ import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 
+import java.util.concurrent.RejectedExecutionException;
+
 @RestControllerAdvice
 @Slf4j
 public class GlobalControllerAdvice {
@@ -40,4 +42,11 @@ public class GlobalControllerAdvice {
         log.warn("Handle DuplicateKeyException: ", e);
         return OutputResult.error("Entity with such key already exists : " + e.getMessage());
     }
+
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    @ExceptionHandler(RejectedExecutionException.class)
+    public OutputResult handleRejectedExecutionExceptions(RejectedExecutionException e) {
+        log.warn("Reject request, request executor is full: {}", e.getMessage());
+        return OutputResult.error("Too many requests, try again later");
+    }
 }
@@ -0,0 +1,13 @@
+package com.musala.drones.entity;
+
+import lombok.Data;
+
+import java.time.Instant;
+
+@Data
+public class BatteryAudit {
+
+    private final int batteryCapacity;
+    private final State state;
+    private final Instant auditedAt;
+}
@@ -2,9 +2,15 @@ package com.musala.drones.entity;
 
 import lombok.Data;
 
+/**
+ * Drone without its medications, read by fleet wide scans and availability queries.
+ */
 @Data
 public class DronePartial {
+    private Long id;
     private String serialNumber;
+    private Model model;
+    private int weightLimit;
     private int batteryCapacity;
     private State state;
 }
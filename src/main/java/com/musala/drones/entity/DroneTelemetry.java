@@ -0,0 +1,14 @@
+package com.musala.drones.entity;
+
+import lombok.Data;
+
+/**
+ * Battery level and state reported by a drone, a {@code null} value means it wasn't reported.
+ */
+@Data
+public class DroneTelemetry {
+
+    private final String serialNumber;
+    private final Integer batteryCapacity;
+    private final State state;
+}
@@ -0,0 +1,11 @@
+package com.musala.drones.entity;
+
+import lombok.Data;
+
+@Data
+public class DroneTransition {
+
+    private final String serialNumber;
+    private final State from;
+    private final State to;
+}
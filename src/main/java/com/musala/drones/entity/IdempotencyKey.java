@@ -0,0 +1,15 @@
+package com.musala.drones.entity;
+
+import lombok.Data;
+
+/**
+ * Key of a request sent with an {@code Idempotency-Key} header, with the fingerprint of the request it was first
+ * used for and the JSON of its result.
+ */
+@Data
+public class IdempotencyKey {
+
+    private final String requestKey;
+    private final String fingerprint;
+    private final String result;
+}
@@ -2,11 +2,12 @@ package com.musala.drones.entity;
 
 import lombok.Data;
 
+/**
+ * Medication loaded to a drone, a reference to {@link MedicationCatalogEntry} by its code.
+ */
 @Data
 public class Medication {
 
-    private final String name;
-    private final int weight;
     private final String code;
-    private final String image; //url to image
+    private final int quantity;
 }
@@ -0,0 +1,12 @@
+package com.musala.drones.entity;
+
+import lombok.Data;
+
+@Data
+public class MedicationCatalogEntry {
+
+    private final String code;
+    private final String name;
+    private final int weight;
+    private final String image; //url to image
+}
@@ -0,0 +1,14 @@
+package com.musala.drones.entity;
+
+import lombok.Data;
+
+/**
+ * Number and summed weight limit of available drones of one model.
+ */
+@Data
+public class ModelCapacity {
+
+    private final Model model;
+    private final int drones;
+    private final long weightLimit;
+}
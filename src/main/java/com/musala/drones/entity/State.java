@@ -1,10 +1,43 @@
 package com.musala.drones.entity;
 
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+
 public enum State {
     IDLE,
     LOADING,
     LOADED,
     DELIVERING,
     DELIVERED,
-    RETURNING
+    RETURNING;
+
+    private static final Map<State, Set<State>> TRANSITIONS = new EnumMap<>(State.class);
+
+    static {
+        TRANSITIONS.put(IDLE, EnumSet.of(LOADING, LOADED));
+        TRANSITIONS.put(LOADING, EnumSet.of(LOADED, IDLE));
+        TRANSITIONS.put(LOADED, EnumSet.of(DELIVERING));
+        TRANSITIONS.put(DELIVERING, EnumSet.of(DELIVERED));
+        TRANSITIONS.put(DELIVERED, EnumSet.of(RETURNING));
+        TRANSITIONS.put(RETURNING, EnumSet.of(IDLE));
+    }
+
+    public boolean canTransitionTo(State target) {
+        return TRANSITIONS.get(this).contains(target);
+    }
+
+    /**
+     * @return states which are allowed to move to the given state
+     */
+    public static Set<State> sourcesOf(State target) {
+        Set<State> sources = EnumSet.noneOf(State.class);
+        TRANSITIONS.forEach((source, targets) -> {
+            if (targets.contains(target)) {
+                sources.add(source);
+            }
+        });
+        return sources;
+    }
 }
@@ -0,0 +1,23 @@
+package com.musala.drones.model;
+
+import com.musala.drones.entity.BatteryAudit;
+import com.musala.drones.entity.State;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatteryAuditDto {
+
+    private Integer batteryCapacity;
+    private State state;
+    private Instant auditedAt;
+
+    public static BatteryAuditDto fromBatteryAudit(BatteryAudit audit) {
+        return new BatteryAuditDto(audit.getBatteryCapacity(), audit.getState(), audit.getAuditedAt());
+    }
+}
@@ -0,0 +1,22 @@
+package com.musala.drones.model;
+
+import com.musala.drones.entity.Model;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+/**
+ * Drones which can be loaded with {@code weight} grams right now.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CapacityDto {
+
+    private int weight;
+    private int drones;
+    private long weightLimit;
+    private Map<Model, Integer> dronesByModel;
+}
@@ -0,0 +1,24 @@
+package com.musala.drones.model;
+
+import com.musala.drones.entity.DronePartial;
+import com.musala.drones.entity.Model;
+import com.musala.drones.entity.State;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DroneEventDto {
+
+    private DroneEventType type;
+    private String serialNumber;
+    private Model model;
+    private State state;
+    private Integer batteryCapacity;
+
+    public static DroneEventDto fromPartial(DroneEventType type, DronePartial drone) {
+        return new DroneEventDto(type, drone.getSerialNumber(), drone.getModel(), drone.getState(), drone.getBatteryCapacity());
+    }
+}
@@ -0,0 +1,12 @@
+package com.musala.drones.model;
+
+public enum DroneEventType {
+    /**
+     * Drone was registered, loaded, changed its state or reported telemetry.
+     */
+    CHANGED,
+    /**
+     * Battery audit recorded a changed snapshot of the drone.
+     */
+    AUDITED
+}
@@ -0,0 +1,13 @@
+package com.musala.drones.model;
+
+import com.musala.drones.validation.ValidDrone;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class DroneList {
+
+    @ValidDrone
+    private List<DroneDto> drones;
+}
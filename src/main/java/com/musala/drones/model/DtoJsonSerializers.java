@@ -0,0 +1,72 @@
+package com.musala.drones.model;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import org.springframework.boot.jackson.JsonComponent;
+
+import java.io.IOException;
+
+/**
+ * Serializers of the DTOs returned in bulk, e.g. by {@code /drone/available}. They write fields straight to
+ * the generator with pre-encoded names instead of going through bean properties, and skip nulls like the rest of
+ * the responses ({@code spring.jackson.default-property-inclusion=non_null}).
+ * <p>
+ * Null skipping is hard-coded, the serializers don't follow a change of the configured inclusion, and a field added
+ * to a DTO isn't written until it's added here. {@code DtoJsonSerializersTest} compares them with bean serialization.
+ */
+@JsonComponent
+public class DtoJsonSerializers {
+
+    private static final SerializedString SERIAL_NUMBER = new SerializedString("serialNumber");
+    private static final SerializedString MODEL = new SerializedString("model");
+    private static final SerializedString WEIGHT_LIMIT = new SerializedString("weightLimit");
+    private static final SerializedString BATTERY_CAPACITY = new SerializedString("batteryCapacity");
+    private static final SerializedString NAME = new SerializedString("name");
+    private static final SerializedString WEIGHT = new SerializedString("weight");
+    private static final SerializedString CODE = new SerializedString("code");
+    private static final SerializedString IMAGE = new SerializedString("image");
+
+    public static class DroneDtoSerializer extends JsonSerializer<DroneDto> {
+
+        @Override
+        public void serialize(DroneDto drone, JsonGenerator generator, SerializerProvider serializers) throws IOException {
+            generator.writeStartObject(drone);
+            writeString(generator, SERIAL_NUMBER, drone.getSerialNumber());
+            if (drone.getModel() != null) {
+                writeString(generator, MODEL, drone.getModel().name());
+            }
+            writeNumber(generator, WEIGHT_LIMIT, drone.getWeightLimit());
+            writeNumber(generator, BATTERY_CAPACITY, drone.getBatteryCapacity());
+            generator.writeEndObject();
+        }
+    }
+
+    public static class MedicationDtoSerializer extends JsonSerializer<MedicationDto> {
+
+        @Override
+        public void serialize(MedicationDto medication, JsonGenerator generator, SerializerProvider serializers) throws IOException {
+            generator.writeStartObject(medication);
+            writeString(generator, NAME, medication.getName());
+            writeNumber(generator, WEIGHT, medication.getWeight());
+            writeString(generator, CODE, medication.getCode());
+            writeString(generator, IMAGE, medication.getImage());
+            generator.writeEndObject();
+        }
+    }
+
+    private static void writeString(JsonGenerator generator, SerializedString name, String value) throws IOException {
+        if (value != null) {
+            generator.writeFieldName(name);
+            generator.writeString(value);
+        }
+    }
+
+    private static void writeNumber(JsonGenerator generator, SerializedString name, Integer value) throws IOException {
+        if (value != null) {
+            generator.writeFieldName(name);
+            generator.writeNumber(value);
+        }
+    }
+}
@@ -1,13 +1,13 @@
 package com.musala.drones.model;
 
+import com.musala.drones.validation.ValidMedication;
 import lombok.Data;
 
-import javax.validation.Valid;
 import java.util.List;
 
 @Data
 public class MedicationList {
 
-    @Valid
+    @ValidMedication
     private List<MedicationDto> medications;
 }
@@ -1,5 +1,6 @@
 package com.musala.drones.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Data;
 import lombok.experimental.Accessors;
 
@@ -10,6 +11,11 @@ public class OutputResult {
     private Status status;
     private Object data;
     private String message;
+    /**
+     * Set for errors caused by concurrent changes, the same request may succeed if it's sent again.
+     */
+    @JsonIgnore
+    private boolean retryable;
 
     public static OutputResult success(Object data) {
         return new OutputResult()
@@ -0,0 +1,20 @@
+package com.musala.drones.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PlannedLoadDto {
+
+    private String serialNumber;
+    private int weight;
+    /**
+     * Quantity of loaded items by medication code.
+     */
+    private Map<String, Integer> medications;
+}
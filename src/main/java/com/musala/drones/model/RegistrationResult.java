@@ -0,0 +1,23 @@
+package com.musala.drones.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RegistrationResult {
+
+    private String serialNumber;
+    private Status status;
+    private String message;
+
+    public static RegistrationResult registered(String serialNumber) {
+        return new RegistrationResult(serialNumber, Status.SUCCESS, null);
+    }
+
+    public static RegistrationResult failed(String serialNumber, String message) {
+        return new RegistrationResult(serialNumber, Status.FAILED, message);
+    }
+}
@@ -0,0 +1,27 @@
+package com.musala.drones.model;
+
+import com.musala.drones.entity.DroneTelemetry;
+import com.musala.drones.entity.State;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotBlank;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TelemetryDto {
+    @NotBlank(message = "Serial number is mandatory")
+    private String serialNumber;
+    @Max(value = 100, message = "Battery capacity should be in percentage")
+    @Min(value = 0, message = "Battery capacity should be in percentage")
+    private Integer batteryCapacity;
+    private State state;
+
+    public DroneTelemetry toDroneTelemetry() {
+        return new DroneTelemetry(serialNumber, batteryCapacity, state);
+    }
+}
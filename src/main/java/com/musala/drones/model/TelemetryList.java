@@ -0,0 +1,13 @@
+package com.musala.drones.model;
+
+import lombok.Data;
+
+import javax.validation.Valid;
+import java.util.List;
+
+@Data
+public class TelemetryList {
+
+    @Valid
+    private List<TelemetryDto> reports;
+}
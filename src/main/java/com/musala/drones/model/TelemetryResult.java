@@ -0,0 +1,14 @@
+package com.musala.drones.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TelemetryResult {
+
+    private int accepted;
+    private int rejected;
+}
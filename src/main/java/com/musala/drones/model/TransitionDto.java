@@ -0,0 +1,21 @@
+package com.musala.drones.model;
+
+import com.musala.drones.entity.DroneTransition;
+import com.musala.drones.entity.State;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TransitionDto {
+
+    private String serialNumber;
+    private State from;
+    private State to;
+
+    public static TransitionDto fromTransition(DroneTransition transition) {
+        return new TransitionDto(transition.getSerialNumber(), transition.getFrom(), transition.getTo());
+    }
+}
@@ -0,0 +1,26 @@
+package com.musala.drones.model;
+
+import com.musala.drones.entity.Model;
+import com.musala.drones.entity.State;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.validation.constraints.NotNull;
+import java.util.List;
+
+/**
+ * Moves all drones matching the filters to the target state. Filters which are not given match every drone,
+ * without {@code from} drones are moved from every state which is allowed to move to the target state.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TransitionRequest {
+
+    private State from;
+    @NotNull(message = "Target state is mandatory")
+    private State to;
+    private List<String> serialNumbers;
+    private Model model;
+}
@@ -0,0 +1,72 @@
+package com.musala.drones.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Coordinates battery audit passes of several instances sharing the database. Every instance keeps a heartbeat
+ * in {@code battery_audit_node}, and claims partitions of the fleet in {@code battery_audit_partition} at most once
+ * per pass, so no partition is audited twice in a pass whoever runs it. A claim holds the partition until it's
+ * {@link #finish finished}, so a pass running longer than the period doesn't overlap with the next one.
+ */
+@Repository
+public class AuditLeaseRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public AuditLeaseRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Records the heartbeat of the node and forgets nodes without one for longer than the timeout.
+     *
+     * @return ids of active nodes including this one, sorted
+     */
+    public List<String> heartbeat(String node, Duration timeout) {
+        jdbcTemplate.update("INSERT INTO battery_audit_node (node, seen_at) VALUES (?, now()) " +
+                "ON CONFLICT (node) DO UPDATE SET seen_at = excluded.seen_at", node);
+        jdbcTemplate.update("DELETE FROM battery_audit_node WHERE seen_at < now() - ? * interval '1 millisecond'", timeout.toMillis());
+        return jdbcTemplate.queryForList("SELECT node FROM battery_audit_node ORDER BY node", String.class);
+    }
+
+    /**
+     * Makes sure partitions {@code 0..count-1} exist. New ones count as finished by the pass before {@code pass}, so only
+     * their own node claims them, for {@code pass}.
+     */
+    public void createPartitions(int count, long pass) {
+        jdbcTemplate.update("INSERT INTO battery_audit_partition (partition_id, pass, finished_pass) " +
+                "SELECT g, ?, ? FROM generate_series(0, ? - 1) g " +
+                "ON CONFLICT (partition_id) DO NOTHING", pass - 1, pass - 1, count);
+    }
+
+    /**
+     * Claims the partition for the pass, unless it is already claimed for this or a later pass, its previous claim
+     * is neither finished nor older than {@code leaseTimeout}, or another node is claiming it at the same moment.
+     *
+     * @return the node which claimed the partition before, empty string if nobody did, or nothing if not claimed
+     */
+    public Optional<String> claim(int partition, long pass, String node, Duration leaseTimeout) {
+        List<String> previousOwner = jdbcTemplate.queryForList("WITH previous AS (" +
+                        "SELECT partition_id, owner FROM battery_audit_partition WHERE partition_id = ? AND pass < ? " +
+                        "AND (finished_pass = pass OR claimed_at < now() - ? * interval '1 millisecond') " +
+                        "FOR UPDATE SKIP LOCKED) " +
+                        "UPDATE battery_audit_partition p SET pass = ?, owner = ?, claimed_at = now() FROM previous " +
+                        "WHERE p.partition_id = previous.partition_id " +
+                        "RETURNING coalesce(previous.owner, '')",
+                String.class, partition, pass, leaseTimeout.toMillis(), pass, node);
+        return previousOwner.stream().findFirst();
+    }
+
+    /**
+     * Releases the claim of the node once the partition is audited, unless the claim expired and was taken over.
+     */
+    public void finish(int partition, long pass, String node) {
+        jdbcTemplate.update("UPDATE battery_audit_partition SET finished_pass = pass " +
+                "WHERE partition_id = ? AND pass = ? AND owner = ?", partition, pass, node);
+    }
+}
@@ -0,0 +1,105 @@
+package com.musala.drones.repository;
+
+import com.musala.drones.entity.BatteryAudit;
+import com.musala.drones.entity.DronePartial;
+import com.musala.drones.entity.State;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+/**
+ * History of battery audit snapshots. The {@code battery_audit} table is range partitioned by day (UTC),
+ * so old history is removed by dropping whole partitions instead of deleting rows.
+ */
+@Repository
+@Slf4j
+public class BatteryAuditRepository {
+
+    private static final String TABLE = "battery_audit";
+    private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.BASIC_ISO_DATE;
+
+    private final JdbcTemplate jdbcTemplate;
+    private volatile LocalDate lastPartitionDay;
+
+    public BatteryAuditRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public void saveAll(List<DronePartial> drones, Instant auditedAt) {
+        if (drones.isEmpty()) {
+            return;
+        }
+        LocalDate day = LocalDate.ofInstant(auditedAt, ZoneOffset.UTC);
+        if (!day.equals(lastPartitionDay)) {
+            createPartitionOnce(day);
+        }
+
+        Timestamp timestamp = Timestamp.from(auditedAt);
+        jdbcTemplate.batchUpdate("INSERT INTO battery_audit (drone_id, battery_capacity, state, audited_at) VALUES (?, ?, ?, ?)",
+                drones, drones.size(), (ps, drone) -> {
+                    ps.setLong(1, drone.getId());
+                    ps.setInt(2, drone.getBatteryCapacity());
+                    ps.setString(3, drone.getState().name());
+                    ps.setTimestamp(4, timestamp);
+                });
+    }
+
+    // audit workers save batches in parallel, and concurrent CREATE TABLE IF NOT EXISTS can still fail
+    private synchronized void createPartitionOnce(LocalDate day) {
+        if (!day.equals(lastPartitionDay)) {
+            createPartition(day);
+            lastPartitionDay = day;
+        }
+    }
+
+    public List<BatteryAudit> findBySerialNumber(String serialNumber, Instant from, Instant to) {
+        return jdbcTemplate.query("SELECT a.battery_capacity, a.state, a.audited_at FROM battery_audit a " +
+                        "JOIN drone d ON d.id = a.drone_id " +
+                        "WHERE d.serial_number = ? AND a.audited_at >= ? AND a.audited_at < ? " +
+                        "ORDER BY a.audited_at",
+                (rs, rowNum) -> new BatteryAudit(rs.getInt(1), State.valueOf(rs.getString(2)), rs.getTimestamp(3).toInstant()),
+                serialNumber, Timestamp.from(from), Timestamp.from(to));
+    }
+
+    public void createPartition(LocalDate day) {
+        String partition = partitionName(day);
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + partition + " PARTITION OF " + TABLE +
+                " FOR VALUES FROM ('" + day.atStartOfDay(ZoneOffset.UTC).toInstant() + "')" +
+                " TO ('" + day.plusDays(1).atStartOfDay(ZoneOffset.UTC).toInstant() + "')");
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS " + partition + "_drone_idx ON " + partition + " (drone_id, audited_at)");
+    }
+
+    /**
+     * Drops every daily partition that holds only history older than the given day.
+     *
+     * @return number of dropped partitions
+     */
+    public int dropPartitionsBefore(LocalDate day) {
+        List<String> partitions = jdbcTemplate.queryForList("SELECT c.relname FROM pg_inherits i " +
+                "JOIN pg_class c ON c.oid = i.inhrelid " +
+                "JOIN pg_class p ON p.oid = i.inhparent " +
+                "WHERE p.relname = ?", String.class, TABLE);
+
+        int dropped = 0;
+        for (String partition : partitions) {
+            LocalDate partitionDay = LocalDate.parse(partition.substring(TABLE.length() + 1), PARTITION_SUFFIX);
+            if (partitionDay.isBefore(day)) {
+                jdbcTemplate.execute("DROP TABLE " + partition);
+                log.info("Dropped battery audit partition: {}", partition);
+                dropped++;
+            }
+        }
+        return dropped;
+    }
+
+    private static String partitionName(LocalDate day) {
+        return TABLE + "_" + day.format(PARTITION_SUFFIX);
+    }
+}
@@ -2,26 +2,42 @@ package com.musala.drones.repository;
 
 import com.musala.drones.entity.Drone;
 import com.musala.drones.entity.DronePartial;
-import com.musala.drones.entity.State;
-import org.springframework.data.domain.Pageable;
-import org.springframework.data.domain.Slice;
+import org.springframework.data.jdbc.repository.query.Query;
 import org.springframework.data.relational.core.sql.LockMode;
 import org.springframework.data.relational.repository.Lock;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.lang.Nullable;
 
+import java.util.Collection;
 import java.util.List;
 
-public interface DroneRepository extends CrudRepository<Drone, String> {
-
-    List<Drone> findByState(State state);
+public interface DroneRepository extends CrudRepository<Drone, String>, DroneRepositoryCustom {
 
     @Nullable
     Drone findBySerialNumber(String serialNumber);
 
+    boolean existsBySerialNumber(String serialNumber);
+
     @Nullable
     @Lock(LockMode.PESSIMISTIC_WRITE)
     Drone findWithLockBySerialNumber(String serialNumber);
 
-    Slice<DronePartial> findAllPartialBy(Pageable pageable);
+    /**
+     * Keyset page over the fleet: drones with id greater than {@code afterId}, ordered by id.
+     * Every page is a primary key range scan, so its cost doesn't depend on how far the walk has gone.
+     */
+    @Query("SELECT id, serial_number, model, weight_limit, battery_capacity, state FROM drone WHERE id > :afterId ORDER BY id LIMIT :limit")
+    List<DronePartial> findPartialsAfter(long afterId, int limit);
+
+    /**
+     * Keyset page within the id range {@code (afterId, beforeId)}, ordered by id.
+     */
+    @Query("SELECT id, serial_number, model, weight_limit, battery_capacity, state FROM drone WHERE id > :afterId AND id < :beforeId ORDER BY id LIMIT :limit")
+    List<DronePartial> findPartialsBetween(long afterId, long beforeId, int limit);
+
+    @Query("SELECT coalesce(max(id), 0) FROM drone")
+    long findMaxId();
+
+    @Query("SELECT id, serial_number, model, weight_limit, battery_capacity, state FROM drone WHERE serial_number IN (:serialNumbers)")
+    List<DronePartial> findPartialsBySerialNumbers(Collection<String> serialNumbers);
 }
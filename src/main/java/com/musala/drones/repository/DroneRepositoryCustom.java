@@ -0,0 +1,121 @@
+package com.musala.drones.repository;
+
+import com.musala.drones.entity.Drone;
+import com.musala.drones.entity.DronePartial;
+import com.musala.drones.entity.DroneTelemetry;
+import com.musala.drones.entity.Medication;
+import com.musala.drones.entity.Model;
+import com.musala.drones.entity.ModelCapacity;
+import com.musala.drones.entity.State;
+import org.springframework.data.domain.Pageable;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+public interface DroneRepositoryCustom {
+
+    Set<String> AVAILABLE_SORT_PROPERTIES = Set.of("batteryCapacity", "weightLimit");
+
+    /**
+     * Finds drones in the given state together with their medications, which are fetched in batches
+     * instead of one query per drone.
+     */
+    List<Drone> findByState(State state);
+
+    /**
+     * Inserts drones in one JDBC batch, drones with already registered serial numbers are skipped.
+     *
+     * @return for every drone 1 if it was inserted or 0 if its serial number is already taken
+     */
+    int[] insertAllIgnoringDuplicates(List<Drone> drones);
+
+    /**
+     * Moves the drone to the new state if it is still IDLE with battery level not lower than {@code minBatteryCapacity}
+     * and records the transition.
+     *
+     * @return true if the drone was updated
+     */
+    boolean updateStateIfLoadable(long id, int minBatteryCapacity, State state);
+
+    /**
+     * Moves all the drones to the new state and records their transitions if every one of them is still IDLE with
+     * battery level not lower than {@code minBatteryCapacity}, otherwise none of them is moved.
+     *
+     * @return true if the drones were updated
+     */
+    boolean updateAllStatesIfLoadable(Collection<Long> ids, int minBatteryCapacity, State state);
+
+    /**
+     * Updates only the state column of the drone, unlike saving the whole aggregate, and records the transition.
+     *
+     * @return true if the drone was in the {@code from} state
+     */
+    boolean updateState(long id, State from, State to);
+
+    /**
+     * Moves all drones in the {@code from} state with battery level not lower than {@code minBatteryCapacity} matching
+     * the filters to the {@code to} state and records their transitions with one statement. Legality of the transition
+     * is not checked here.
+     *
+     * @param serialNumbers serial numbers to move or null for any drone
+     * @param model         model of drones to move or null for any model
+     * @return serial numbers of moved drones
+     */
+    List<String> updateStates(State from, State to, int minBatteryCapacity, Collection<String> serialNumbers, Model model);
+
+    /**
+     * Updates reported battery levels of drones by serial number in one JDBC batch, every report should have one.
+     * Reported states are not written here, they are transitions which have to be checked and recorded.
+     *
+     * @return for every report 1 if the drone was updated or 0 if there is no such drone
+     */
+    int[] updateBatteryLevels(List<DroneTelemetry> reports);
+
+    void deleteMedications(long droneId);
+
+    void deleteAllMedications(Collection<Long> droneIds);
+
+    /**
+     * Inserts medications of the drone in one JDBC batch, the drone should have no medications stored.
+     */
+    void insertMedications(long droneId, List<Medication> medications);
+
+    /**
+     * Inserts medications of many drones in one JDBC batch, the drones should have no medications stored.
+     */
+    void insertAllMedications(Map<Long, List<Medication>> medicationsByDrone);
+
+    /**
+     * Finds IDLE drones with battery level not lower than {@code minBatteryCapacity} and weight limit not lower than
+     * {@code weight}, ordered by the sort of the page and then by id.
+     *
+     * @param pageable page to return, can be sorted only by {@link #AVAILABLE_SORT_PROPERTIES}
+     */
+    List<DronePartial> findAvailable(int minBatteryCapacity, int weight, Pageable pageable);
+
+    /**
+     * Counts IDLE drones with battery level not lower than {@code minBatteryCapacity} which can carry {@code weight} grams.
+     */
+    List<ModelCapacity> countAvailableByModel(int minBatteryCapacity, int weight);
+
+    /**
+     * Counts drones in every state, states without drones are missing.
+     */
+    Map<State, Integer> countByState();
+
+    /**
+     * Finds IDLE drones with battery level not lower than {@code minBatteryCapacity}, ordered by weight limit
+     * descending. Drones are not locked, they can be claimed with {@link #updateAllStatesIfLoadable}.
+     */
+    List<DronePartial> findAvailableByWeightLimit(int minBatteryCapacity);
+
+    /**
+     * Passes every drone with its medications to the consumer in order of id. Drones are read by keyset pages of
+     * {@code batchSize} with medications of every page fetched by one more query, so at most one page is in memory
+     * and the first drones are passed on before the rest of the fleet is read.
+     */
+    void forEachDrone(int batchSize, Consumer<Drone> consumer);
+}
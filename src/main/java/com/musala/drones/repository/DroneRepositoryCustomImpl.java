@@ -0,0 +1,309 @@
+package com.musala.drones.repository;
+
+import com.musala.drones.entity.Drone;
+import com.musala.drones.entity.DronePartial;
+import com.musala.drones.entity.DroneTelemetry;
+import com.musala.drones.entity.Medication;
+import com.musala.drones.entity.Model;
+import com.musala.drones.entity.ModelCapacity;
+import com.musala.drones.entity.State;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcOperations;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+public class DroneRepositoryCustomImpl implements DroneRepositoryCustom {
+
+    private static final int MEDICATIONS_BATCH_SIZE = 1000;
+
+    static final RowMapper<Drone> DRONE_MAPPER = (rs, rowNum) -> {
+        Drone drone = new Drone(
+                rs.getString("serial_number"),
+                Model.valueOf(rs.getString("model")),
+                rs.getInt("weight_limit"),
+                rs.getInt("battery_capacity"),
+                State.valueOf(rs.getString("state")));
+        drone.setId(rs.getLong("id"));
+        return drone;
+    };
+
+    static final RowMapper<DronePartial> PARTIAL_MAPPER = (rs, rowNum) -> {
+        DronePartial partial = new DronePartial();
+        partial.setId(rs.getLong("id"));
+        partial.setSerialNumber(rs.getString("serial_number"));
+        partial.setModel(Model.valueOf(rs.getString("model")));
+        partial.setWeightLimit(rs.getInt("weight_limit"));
+        partial.setBatteryCapacity(rs.getInt("battery_capacity"));
+        partial.setState(State.valueOf(rs.getString("state")));
+        return partial;
+    };
+
+    private final NamedParameterJdbcOperations jdbcOperations;
+
+    public DroneRepositoryCustomImpl(NamedParameterJdbcOperations jdbcOperations) {
+        this.jdbcOperations = jdbcOperations;
+    }
+
+    @Override
+    public List<Drone> findByState(State state) {
+        List<Drone> drones = jdbcOperations.query("SELECT id, serial_number, model, weight_limit, battery_capacity, state FROM drone " +
+                "WHERE state = :state ORDER BY id", new MapSqlParameterSource("state", state.name()), DRONE_MAPPER);
+        fetchMedications(drones);
+        return drones;
+    }
+
+    @Override
+    public int[] insertAllIgnoringDuplicates(List<Drone> drones) {
+        SqlParameterSource[] batch = drones.stream()
+                .map(drone -> new MapSqlParameterSource()
+                        .addValue("serialNumber", drone.getSerialNumber())
+                        .addValue("model", drone.getModel().name())
+                        .addValue("weightLimit", drone.getWeightLimit())
+                        .addValue("batteryCapacity", drone.getBatteryCapacity())
+                        .addValue("state", drone.getState().name()))
+                .toArray(SqlParameterSource[]::new);
+        return jdbcOperations.batchUpdate("INSERT INTO drone (serial_number, model, weight_limit, battery_capacity, state) " +
+                "VALUES (:serialNumber, :model, :weightLimit, :batteryCapacity, :state) " +
+                "ON CONFLICT (serial_number) DO NOTHING", batch);
+    }
+
+    @Override
+    public boolean updateStateIfLoadable(long id, int minBatteryCapacity, State state) {
+        MapSqlParameterSource parameters = new MapSqlParameterSource()
+                .addValue("id", id)
+                .addValue("minBatteryCapacity", minBatteryCapacity)
+                .addValue("from", State.IDLE.name())
+                .addValue("to", state.name());
+        return jdbcOperations.update(recordingTransitions("UPDATE drone SET state = :to " +
+                "WHERE id = :id AND state = :from AND battery_capacity >= :minBatteryCapacity"), parameters) > 0;
+    }
+
+    @Override
+    public boolean updateAllStatesIfLoadable(Collection<Long> ids, int minBatteryCapacity, State state) {
+        MapSqlParameterSource parameters = new MapSqlParameterSource()
+                .addValue("ids", ids.toArray(Long[]::new))
+                .addValue("count", ids.size())
+                .addValue("minBatteryCapacity", minBatteryCapacity)
+                .addValue("from", State.IDLE.name())
+                .addValue("to", state.name());
+        // rows are locked in the order of id, so concurrent claims of overlapping drones can't deadlock
+        String loadable = "loadable AS (SELECT id FROM drone WHERE id = ANY(:ids::BIGINT[]) AND state = :from " +
+                "AND battery_capacity >= :minBatteryCapacity ORDER BY id FOR UPDATE)";
+        return jdbcOperations.update(recordingTransitions(loadable, "UPDATE drone SET state = :to FROM loadable " +
+                "WHERE drone.id = loadable.id AND (SELECT count(*) FROM loadable) = :count"), parameters) == ids.size();
+    }
+
+    @Override
+    public boolean updateState(long id, State from, State to) {
+        MapSqlParameterSource parameters = new MapSqlParameterSource()
+                .addValue("id", id)
+                .addValue("from", from.name())
+                .addValue("to", to.name());
+        return jdbcOperations.update(recordingTransitions("UPDATE drone SET state = :to WHERE id = :id AND state = :from"), parameters) > 0;
+    }
+
+    @Override
+    public List<String> updateStates(State from, State to, int minBatteryCapacity, Collection<String> serialNumbers, Model model) {
+        StringBuilder update = new StringBuilder("UPDATE drone SET state = :to");
+        MapSqlParameterSource parameters = new MapSqlParameterSource()
+                .addValue("from", from.name())
+                .addValue("to", to.name())
+                .addValue("minBatteryCapacity", minBatteryCapacity);
+        if (serialNumbers != null) {
+            // joined instead of = ANY(...), which would be checked against every drone in the state
+            update.append(" FROM unnest(:serialNumbers::TEXT[]) AS requested (serial_number)");
+            parameters.addValue("serialNumbers", serialNumbers.toArray(String[]::new));
+        }
+        update.append(" WHERE drone.state = :from AND drone.battery_capacity >= :minBatteryCapacity");
+        if (serialNumbers != null) {
+            update.append(" AND drone.serial_number = requested.serial_number");
+        }
+        if (model != null) {
+            update.append(" AND drone.model = :model");
+            parameters.addValue("model", model.name());
+        }
+        return jdbcOperations.queryForList("WITH moved AS (" + update + " RETURNING drone.id, drone.serial_number), " +
+                "recorded AS (INSERT INTO drone_transition (drone_id, from_state, to_state) SELECT id, :from, :to FROM moved) " +
+                "SELECT serial_number FROM moved ORDER BY serial_number", parameters, String.class);
+    }
+
+    /**
+     * Wraps an update of drone state from {@code :from} to {@code :to} so the same statement records transitions
+     * of updated drones, the statement returns the number of recorded transitions.
+     */
+    private static String recordingTransitions(String update) {
+        return "WITH " + moved(update);
+    }
+
+    /**
+     * @param with common table expression the update can refer to
+     */
+    private static String recordingTransitions(String with, String update) {
+        return "WITH " + with + ", " + moved(update);
+    }
+
+    private static String moved(String update) {
+        return "moved AS (" + update + " RETURNING drone.id) " +
+                "INSERT INTO drone_transition (drone_id, from_state, to_state) SELECT id, :from, :to FROM moved";
+    }
+
+    @Override
+    public int[] updateBatteryLevels(List<DroneTelemetry> reports) {
+        SqlParameterSource[] batch = reports.stream()
+                .map(report -> new MapSqlParameterSource()
+                        .addValue("serialNumber", report.getSerialNumber())
+                        .addValue("batteryCapacity", report.getBatteryCapacity(), Types.INTEGER))
+                .toArray(SqlParameterSource[]::new);
+        return jdbcOperations.batchUpdate("UPDATE drone SET battery_capacity = :batteryCapacity WHERE serial_number = :serialNumber", batch);
+    }
+
+    @Override
+    public void deleteMedications(long droneId) {
+        jdbcOperations.update("DELETE FROM medication WHERE drone = :droneId", new MapSqlParameterSource("droneId", droneId));
+    }
+
+    @Override
+    public void deleteAllMedications(Collection<Long> droneIds) {
+        List<Long> ids = new ArrayList<>(droneIds);
+        for (int from = 0; from < ids.size(); from += MEDICATIONS_BATCH_SIZE) {
+            List<Long> batch = ids.subList(from, Math.min(from + MEDICATIONS_BATCH_SIZE, ids.size()));
+            jdbcOperations.update("DELETE FROM medication WHERE drone IN (:ids)", new MapSqlParameterSource("ids", batch));
+        }
+    }
+
+    @Override
+    public void insertMedications(long droneId, List<Medication> medications) {
+        insertAllMedications(Map.of(droneId, medications));
+    }
+
+    @Override
+    public void insertAllMedications(Map<Long, List<Medication>> medicationsByDrone) {
+        int size = medicationsByDrone.values().stream().mapToInt(List::size).sum();
+        long[] droneIds = new long[size];
+        int[] droneKeys = new int[size];
+        String[] codes = new String[size];
+        int[] quantities = new int[size];
+        int row = 0;
+        for (Map.Entry<Long, List<Medication>> entry : medicationsByDrone.entrySet()) {
+            List<Medication> medications = entry.getValue();
+            for (int i = 0; i < medications.size(); i++, row++) {
+                droneIds[row] = entry.getKey();
+                droneKeys[row] = i;
+                codes[row] = medications.get(i).getCode();
+                quantities[row] = medications.get(i).getQuantity();
+            }
+        }
+        // one statement over arrays instead of a batch with a row per medication
+        MapSqlParameterSource parameters = new MapSqlParameterSource()
+                .addValue("droneIds", droneIds)
+                .addValue("droneKeys", droneKeys)
+                .addValue("codes", codes)
+                .addValue("quantities", quantities);
+        jdbcOperations.update("INSERT INTO medication (drone, drone_key, code, quantity) " +
+                "SELECT * FROM unnest(:droneIds::BIGINT[], :droneKeys::INT[], :codes::TEXT[], :quantities::INT[])", parameters);
+    }
+
+    @Override
+    public List<DronePartial> findAvailable(int minBatteryCapacity, int weight, Pageable pageable) {
+        // state is inlined so the planner can use partial indexes on IDLE drones
+        StringBuilder sql = new StringBuilder("SELECT id, serial_number, model, weight_limit, battery_capacity, state FROM drone " +
+                "WHERE state = 'IDLE' AND battery_capacity >= :minBatteryCapacity AND weight_limit >= :weight ORDER BY ");
+        for (Sort.Order order : pageable.getSort()) {
+            sql.append(availableSortColumn(order.getProperty())).append(order.isAscending() ? " ASC, " : " DESC, ");
+        }
+        sql.append("id");
+
+        MapSqlParameterSource parameters = new MapSqlParameterSource()
+                .addValue("minBatteryCapacity", minBatteryCapacity)
+                .addValue("weight", weight);
+        if (pageable.isPaged()) {
+            sql.append(" LIMIT :limit OFFSET :offset");
+            parameters.addValue("limit", pageable.getPageSize())
+                    .addValue("offset", pageable.getOffset());
+        }
+        return jdbcOperations.query(sql.toString(), parameters, PARTIAL_MAPPER);
+    }
+
+    @Override
+    public List<ModelCapacity> countAvailableByModel(int minBatteryCapacity, int weight) {
+        MapSqlParameterSource parameters = new MapSqlParameterSource()
+                .addValue("minBatteryCapacity", minBatteryCapacity)
+                .addValue("weight", weight);
+        return jdbcOperations.query("SELECT model, count(*) AS drones, sum(weight_limit) AS weight_limit FROM drone " +
+                        "WHERE state = 'IDLE' AND battery_capacity >= :minBatteryCapacity AND weight_limit >= :weight GROUP BY model",
+                parameters,
+                (rs, rowNum) -> new ModelCapacity(Model.valueOf(rs.getString("model")), rs.getInt("drones"), rs.getLong("weight_limit")));
+    }
+
+    @Override
+    public Map<State, Integer> countByState() {
+        Map<State, Integer> drones = new EnumMap<>(State.class);
+        jdbcOperations.query("SELECT state, count(*) AS drones FROM drone GROUP BY state",
+                (RowCallbackHandler) rs -> drones.put(State.valueOf(rs.getString("state")), rs.getInt("drones")));
+        return drones;
+    }
+
+    @Override
+    public List<DronePartial> findAvailableByWeightLimit(int minBatteryCapacity) {
+        return jdbcOperations.query("SELECT id, serial_number, model, weight_limit, battery_capacity, state FROM drone " +
+                        "WHERE state = 'IDLE' AND battery_capacity >= :minBatteryCapacity ORDER BY weight_limit DESC, id",
+                new MapSqlParameterSource("minBatteryCapacity", minBatteryCapacity), PARTIAL_MAPPER);
+    }
+
+    @Override
+    public void forEachDrone(int batchSize, Consumer<Drone> consumer) {
+        long lastId = 0;
+        List<Drone> drones;
+        do {
+            drones = jdbcOperations.query("SELECT id, serial_number, model, weight_limit, battery_capacity, state FROM drone " +
+                            "WHERE id > :afterId ORDER BY id LIMIT :limit",
+                    new MapSqlParameterSource("afterId", lastId).addValue("limit", batchSize), DRONE_MAPPER);
+            fetchMedications(drones);
+            drones.forEach(consumer);
+            if (!drones.isEmpty()) {
+                lastId = drones.get(drones.size() - 1).getId();
+            }
+        } while (drones.size() == batchSize);
+    }
+
+    private static String availableSortColumn(String property) {
+        switch (property) {
+            case "batteryCapacity":
+                return "battery_capacity";
+            case "weightLimit":
+                return "weight_limit";
+            default:
+                throw new IllegalArgumentException("Can't sort available drones by: " + property);
+        }
+    }
+
+    private void fetchMedications(List<Drone> drones) {
+        Map<Long, Drone> dronesById = new HashMap<>();
+        drones.forEach(drone -> dronesById.put(drone.getId(), drone));
+        List<Long> ids = drones.stream().map(Drone::getId).collect(Collectors.toList());
+
+        for (int from = 0; from < ids.size(); from += MEDICATIONS_BATCH_SIZE) {
+            List<Long> batch = ids.subList(from, Math.min(from + MEDICATIONS_BATCH_SIZE, ids.size()));
+            jdbcOperations.query("SELECT drone, code, quantity FROM medication " +
+                            "WHERE drone IN (:ids) ORDER BY drone, drone_key",
+                    new MapSqlParameterSource("ids", batch),
+                    rs -> {
+                        Medication medication = new Medication(rs.getString("code"), rs.getInt("quantity"));
+                        dronesById.get(rs.getLong("drone")).getMedications().add(medication);
+                    });
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.musala.drones.repository;
+
+import com.musala.drones.entity.IdempotencyKey;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Keys of idempotent requests shared by all instances. A key is claimed and completed in the transaction of its
+ * request, so a concurrent retry waits for the request on the primary key and then finds its result.
+ */
+@Repository
+public class IdempotencyKeyRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public IdempotencyKeyRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Claims a key which is not used yet or expired.
+     *
+     * @return false if the key is used by another request within its time to live
+     */
+    public boolean claim(String requestKey, String fingerprint, Duration ttl) {
+        return jdbcTemplate.update("INSERT INTO idempotency_key (request_key, fingerprint, created_at) VALUES (?, ?, now()) " +
+                        "ON CONFLICT (request_key) DO UPDATE SET fingerprint = excluded.fingerprint, result = NULL, created_at = excluded.created_at " +
+                        "WHERE idempotency_key.created_at < now() - ? * interval '1 millisecond'",
+                requestKey, fingerprint, ttl.toMillis()) > 0;
+    }
+
+    public Optional<IdempotencyKey> find(String requestKey) {
+        List<IdempotencyKey> keys = jdbcTemplate.query("SELECT request_key, fingerprint, result FROM idempotency_key WHERE request_key = ?",
+                (rs, rowNum) -> new IdempotencyKey(rs.getString("request_key"), rs.getString("fingerprint"), rs.getString("result")),
+                requestKey);
+        return keys.stream().findFirst();
+    }
+
+    public void complete(String requestKey, String result) {
+        jdbcTemplate.update("UPDATE idempotency_key SET result = ? WHERE request_key = ?", result, requestKey);
+    }
+
+    /**
+     * @return number of deleted keys
+     */
+    public int deleteExpired(Duration ttl) {
+        return jdbcTemplate.update("DELETE FROM idempotency_key WHERE created_at < now() - ? * interval '1 millisecond'", ttl.toMillis());
+    }
+}
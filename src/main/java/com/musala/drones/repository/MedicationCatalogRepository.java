@@ -0,0 +1,54 @@
+package com.musala.drones.repository;
+
+import com.musala.drones.entity.MedicationCatalogEntry;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcOperations;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+@Repository
+public class MedicationCatalogRepository {
+
+    private final NamedParameterJdbcOperations jdbcOperations;
+
+    public MedicationCatalogRepository(NamedParameterJdbcOperations jdbcOperations) {
+        this.jdbcOperations = jdbcOperations;
+    }
+
+    /**
+     * @return catalog entries by their codes, unknown codes are missing in the result
+     */
+    public Map<String, MedicationCatalogEntry> findAllByCodes(Collection<String> codes) {
+        Map<String, MedicationCatalogEntry> entries = new HashMap<>();
+        if (codes.isEmpty()) {
+            return entries;
+        }
+        jdbcOperations.query("SELECT code, name, weight, image FROM medication_catalog WHERE code IN (:codes)",
+                new MapSqlParameterSource("codes", codes),
+                rs -> {
+                    MedicationCatalogEntry entry = new MedicationCatalogEntry(rs.getString("code"), rs.getString("name"),
+                            rs.getInt("weight"), rs.getString("image"));
+                    entries.put(entry.getCode(), entry);
+                });
+        return entries;
+    }
+
+    /**
+     * Inserts entries in one JDBC batch, entries with already known codes are skipped.
+     */
+    public void insertAllIgnoringDuplicates(Collection<MedicationCatalogEntry> entries) {
+        SqlParameterSource[] batch = entries.stream()
+                .map(entry -> new MapSqlParameterSource()
+                        .addValue("code", entry.getCode())
+                        .addValue("name", entry.getName())
+                        .addValue("weight", entry.getWeight())
+                        .addValue("image", entry.getImage()))
+                .toArray(SqlParameterSource[]::new);
+        jdbcOperations.batchUpdate("INSERT INTO medication_catalog (code, name, weight, image) " +
+                "VALUES (:code, :name, :weight, :image) ON CONFLICT (code) DO NOTHING", batch);
+    }
+}
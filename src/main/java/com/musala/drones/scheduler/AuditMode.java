@@ -0,0 +1,12 @@
+package com.musala.drones.scheduler;
+
+public enum AuditMode {
+    /**
+     * Every audit pass records a snapshot of every drone.
+     */
+    FULL,
+    /**
+     * Audit pass records only drones which changed since their last recorded snapshot.
+     */
+    DELTA
+}
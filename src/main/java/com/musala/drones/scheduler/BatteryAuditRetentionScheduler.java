@@ -0,0 +1,33 @@
+package com.musala.drones.scheduler;
+
+import com.musala.drones.repository.BatteryAuditRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.Period;
+import java.time.ZoneOffset;
+
+@Component
+public class BatteryAuditRetentionScheduler {
+
+    private final BatteryAuditRepository batteryAuditRepository;
+    private final Period retentionPeriod;
+
+    public BatteryAuditRetentionScheduler(BatteryAuditRepository batteryAuditRepository,
+                                          @Value("${audit.battery.retentionPeriod}") Period retentionPeriod) {
+        this.batteryAuditRepository = batteryAuditRepository;
+        this.retentionPeriod = retentionPeriod;
+    }
+
+    /**
+     * Prepares tomorrow's partition ahead of time and drops partitions outside the retention period.
+     */
+    @Scheduled(cron = "${audit.battery.maintenanceCron}", zone = "UTC")
+    public void maintainPartitions() {
+        LocalDate today = LocalDate.now(ZoneOffset.UTC);
+        batteryAuditRepository.createPartition(today.plusDays(1));
+        batteryAuditRepository.dropPartitionsBefore(today.minus(retentionPeriod));
+    }
+}
@@ -0,0 +1,135 @@
+package com.musala.drones.scheduler;
+
+import com.musala.drones.entity.DronePartial;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Remembers the last recorded battery level and state of every drone to decide if a new snapshot is worth recording.
+ * Values are kept in an open addressing hash table of primitives (drone id -> packed battery and state),
+ * so a fleet of a million drones costs about 12 MB of heap and no per-drone objects.
+ * Partitions of the fleet are audited in parallel, so access to the table is synchronized.
+ */
+@Component
+public class BatteryAuditTracker {
+
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final long EMPTY = 0L; // drone ids start from 1
+
+    private final int minChange;
+    private final int[] thresholds;
+
+    private long[] keys = new long[INITIAL_CAPACITY];
+    private int[] values = new int[INITIAL_CAPACITY];
+    private int size;
+
+    public BatteryAuditTracker(@Value("${audit.battery.minChange}") int minChange,
+                               @Value("${audit.battery.thresholds}") int[] thresholds) {
+        this.minChange = minChange;
+        this.thresholds = thresholds;
+    }
+
+    /**
+     * Checks the drone against its last recorded snapshot and remembers the new one if it should be recorded.
+     *
+     * @return true if the drone is seen for the first time, changed its state, changed its battery level by at least
+     * {@code audit.battery.minChange} or crossed one of {@code audit.battery.thresholds}
+     */
+    public synchronized boolean shouldRecord(DronePartial drone) {
+        int current = pack(drone.getBatteryCapacity(), drone.getState().ordinal());
+        int slot = slot(drone.getId());
+        if (keys[slot] == EMPTY) {
+            insert(slot, drone.getId(), current);
+            return true;
+        }
+
+        int previous = values[slot];
+        if (previous == current || !isSignificant(previous, current)) {
+            return false;
+        }
+        values[slot] = current;
+        return true;
+    }
+
+    /**
+     * Remembers the drone as recorded, whatever its last snapshot known to this tracker was.
+     */
+    public synchronized void remember(DronePartial drone) {
+        int current = pack(drone.getBatteryCapacity(), drone.getState().ordinal());
+        int slot = slot(drone.getId());
+        if (keys[slot] == EMPTY) {
+            insert(slot, drone.getId(), current);
+        } else {
+            values[slot] = current;
+        }
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    private boolean isSignificant(int previous, int current) {
+        if (state(previous) != state(current)) {
+            return true;
+        }
+        int previousBattery = battery(previous);
+        int currentBattery = battery(current);
+        if (Math.abs(previousBattery - currentBattery) >= minChange) {
+            return true;
+        }
+        for (int threshold : thresholds) {
+            if ((previousBattery < threshold) != (currentBattery < threshold)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int slot(long id) {
+        int mask = keys.length - 1;
+        int slot = mix(id) & mask;
+        while (keys[slot] != EMPTY && keys[slot] != id) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void insert(int slot, long id, int value) {
+        keys[slot] = id;
+        values[slot] = value;
+        if (++size > keys.length / 2) {
+            resize();
+        }
+    }
+
+    private void resize() {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new long[oldKeys.length * 2];
+        values = new int[oldValues.length * 2];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                int slot = slot(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private static int mix(long id) {
+        long h = id * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private static int pack(int battery, int state) {
+        return state << 8 | battery;
+    }
+
+    private static int battery(int packed) {
+        return packed & 0xFF;
+    }
+
+    private static int state(int packed) {
+        return packed >>> 8;
+    }
+}
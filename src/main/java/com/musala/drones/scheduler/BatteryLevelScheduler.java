@@ -1,38 +1,203 @@
 package com.musala.drones.scheduler;
 
 import com.musala.drones.entity.DronePartial;
+import com.musala.drones.repository.AuditLeaseRepository;
+import com.musala.drones.repository.BatteryAuditRepository;
 import com.musala.drones.repository.DroneRepository;
+import com.musala.drones.service.DroneEventBroadcaster;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.data.domain.Pageable;
-import org.springframework.data.domain.Slice;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * The fleet is audited in partitions of {@code audit.battery.partitionSize} consecutive drone ids. Partitions are
+ * shared between the active instances by their position in the sorted list of node ids, claimed once per pass through
+ * {@link AuditLeaseRepository} and processed by {@code audit.battery.threads} workers of the audit executor.
+ * A partition still audited by an earlier pass is skipped, unless its claim is older than {@code audit.battery.leaseTimeout}.
+ * <p>
+ * Audit passes are timed as {@code drones.audit.duration}, drones checked and recorded by them are counted as
+ * {@code drones.audit.checked} and {@code drones.audit.recorded}, so their rate is the audit throughput.
+ */
 @Component
 @Slf4j
 public class BatteryLevelScheduler {
 
+    // a node missing this many passes in a row is considered gone and its partitions are taken over
+    private static final int MISSED_PASSES = 3;
+
     private final DroneRepository droneRepository;
+    private final BatteryAuditRepository batteryAuditRepository;
+    private final AuditLeaseRepository auditLeaseRepository;
+    private final BatteryAuditTracker batteryAuditTracker;
+    private final DroneEventBroadcaster eventBroadcaster;
+    private final Executor auditExecutor;
     private final int batchSize;
+    private final AuditMode mode;
+    private final int partitionSize;
+    private final int threads;
+    private final Duration period;
+    private final Duration leaseTimeout;
+    private final String node;
+    private final Timer passDuration;
+    private final Counter checkedDrones;
+    private final Counter recordedDrones;
+    private volatile int createdPartitions;
 
-    public BatteryLevelScheduler(DroneRepository droneRepository, @Value("${audit.battery.batchSize}") int batchSize) {
+    public BatteryLevelScheduler(DroneRepository droneRepository,
+                                 BatteryAuditRepository batteryAuditRepository,
+                                 AuditLeaseRepository auditLeaseRepository,
+                                 BatteryAuditTracker batteryAuditTracker,
+                                 DroneEventBroadcaster eventBroadcaster,
+                                 Executor auditExecutor,
+                                 @Value("${audit.battery.batchSize}") int batchSize,
+                                 @Value("${audit.battery.mode}") AuditMode mode,
+                                 @Value("${audit.battery.partitionSize}") int partitionSize,
+                                 @Value("${audit.battery.threads}") int threads,
+                                 @Value("${audit.battery.period}") Duration period,
+                                 @Value("${audit.battery.leaseTimeout}") Duration leaseTimeout,
+                                 @Value("${audit.battery.node}") String node,
+                                 MeterRegistry meterRegistry) {
         this.droneRepository = droneRepository;
+        this.batteryAuditRepository = batteryAuditRepository;
+        this.auditLeaseRepository = auditLeaseRepository;
+        this.batteryAuditTracker = batteryAuditTracker;
+        this.eventBroadcaster = eventBroadcaster;
+        this.auditExecutor = auditExecutor;
         this.batchSize = batchSize;
+        this.mode = mode;
+        this.partitionSize = partitionSize;
+        this.threads = threads;
+        this.period = period;
+        this.leaseTimeout = leaseTimeout;
+        this.node = node.isEmpty() ? UUID.randomUUID().toString() : node;
+        this.passDuration = Timer.builder("drones.audit.duration")
+                .description("Duration of one battery audit pass over the fleet")
+                .register(meterRegistry);
+        this.checkedDrones = Counter.builder("drones.audit.checked")
+                .description("Drones checked by battery audit passes")
+                .register(meterRegistry);
+        this.recordedDrones = Counter.builder("drones.audit.recorded")
+                .description("Snapshots written to battery audit history")
+                .register(meterRegistry);
     }
 
     @Scheduled(fixedRateString = "${audit.battery.period}")
     public void auditBatteryLevels() {
-        Slice<DronePartial> slice = droneRepository.findAllPartialBy(Pageable.ofSize(batchSize));
-        slice.get().forEach(this::logInfo);
+        auditPass(System.currentTimeMillis() / period.toMillis());
+    }
+
+    /**
+     * Audits the partitions of this node which are not audited by the pass yet. Passes are numbered by periods
+     * since the epoch, so every instance works on the same pass at the same time, and a late or repeated run of
+     * a pass doesn't audit anything twice.
+     * <p>
+     * After its own partitions the node claims the other partitions for the previous pass. These are audited by their
+     * nodes already, unless a node crashed or a view of the nodes differed, so a partition is audited a pass late at
+     * worst instead of waiting for a missing node to expire. Partitions of the current pass are left to their nodes, the
+     * node which runs first in a period would take them all otherwise.
+     */
+    public void auditPass(long pass) {
+        long start = System.nanoTime();
+        Instant auditedAt = Instant.now();
+        List<String> nodes = auditLeaseRepository.heartbeat(node, period.multipliedBy(MISSED_PASSES));
+        int nodeIndex = nodes.indexOf(node);
+        int partitions = (int) (droneRepository.findMaxId() / partitionSize) + 1;
+        if (partitions > createdPartitions) {
+            auditLeaseRepository.createPartitions(partitions, pass);
+            createdPartitions = partitions;
+        }
+
+        Queue<Integer> ownPartitions = new ConcurrentLinkedQueue<>();
+        for (int partition = nodeIndex; partition < partitions; partition += nodes.size()) {
+            ownPartitions.add(partition);
+        }
+        Queue<Integer> otherPartitions = new ConcurrentLinkedQueue<>();
+        for (int partition = 0; partition < partitions; partition++) {
+            if (partition % nodes.size() != nodeIndex) {
+                otherPartitions.add(partition);
+            }
+        }
+        AtomicInteger audited = new AtomicInteger();
+        AtomicInteger recorded = new AtomicInteger();
+        List<CompletableFuture<Void>> workers = new ArrayList<>();
+        // counted up front, workers already started shrink the queue
+        int workerCount = Math.min(threads, ownPartitions.size() + otherPartitions.size());
+        for (int i = 0; i < workerCount; i++) {
+            workers.add(CompletableFuture.runAsync(() -> {
+                Integer partition;
+                while ((partition = ownPartitions.poll()) != null) {
+                    claimAndAudit(partition, pass, auditedAt, audited, recorded);
+                }
+                while ((partition = otherPartitions.poll()) != null) {
+                    claimAndAudit(partition, pass - 1, auditedAt, audited, recorded);
+                }
+            }, auditExecutor));
+        }
+        CompletableFuture.allOf(workers.toArray(new CompletableFuture[0])).join();
+
+        long elapsed = System.nanoTime() - start;
+        passDuration.record(elapsed, TimeUnit.NANOSECONDS);
+        log.debug("Battery audit pass {} on node {} of {} checked {} drones, recorded {} in {} ms",
+                pass, nodeIndex + 1, nodes.size(), audited, recorded, TimeUnit.NANOSECONDS.toMillis(elapsed));
+    }
 
-        while(slice.hasNext()) {
-            slice = droneRepository.findAllPartialBy(slice.nextPageable());
-            slice.get().forEach(this::logInfo);
+    private void claimAndAudit(int partition, long pass, Instant auditedAt, AtomicInteger audited, AtomicInteger recorded) {
+        Optional<String> previousOwner = auditLeaseRepository.claim(partition, pass, node, leaseTimeout);
+        if (previousOwner.isPresent()) {
+            auditPartition(partition, !previousOwner.get().equals(node), auditedAt, audited, recorded);
+            auditLeaseRepository.finish(partition, pass, node);
         }
     }
 
-    private void logInfo(DronePartial drone) {
-        log.info("Drone battery info: {} ", drone);
+    /**
+     * @param takenOver the partition was audited by another node before, so the tracker of this node doesn't know
+     *                  what's recorded for it and every drone is recorded even in {@link AuditMode#DELTA}
+     */
+    private void auditPartition(int partition, boolean takenOver, Instant auditedAt, AtomicInteger audited, AtomicInteger recorded) {
+        long lastId = (long) partition * partitionSize - 1;
+        long endId = (long) (partition + 1) * partitionSize;
+        List<DronePartial> batch;
+        do {
+            batch = droneRepository.findPartialsBetween(lastId, endId, batchSize);
+            List<DronePartial> changed;
+            if (mode == AuditMode.FULL) {
+                changed = batch;
+            } else if (takenOver) {
+                batch.forEach(batteryAuditTracker::remember);
+                changed = batch;
+            } else {
+                changed = batch.stream().filter(batteryAuditTracker::shouldRecord).collect(Collectors.toList());
+            }
+            batteryAuditRepository.saveAll(changed, auditedAt);
+            // only the delta of a partition audited by this node before consists of changes worth an event
+            if (mode == AuditMode.DELTA && !takenOver) {
+                eventBroadcaster.publishAudited(changed);
+            }
+            audited.addAndGet(batch.size());
+            recorded.addAndGet(changed.size());
+            checkedDrones.increment(batch.size());
+            recordedDrones.increment(changed.size());
+            if (!batch.isEmpty()) {
+                lastId = batch.get(batch.size() - 1).getId();
+            }
+        } while (batch.size() == batchSize);
     }
 }
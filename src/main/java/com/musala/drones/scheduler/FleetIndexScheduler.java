@@ -0,0 +1,29 @@
+package com.musala.drones.scheduler;
+
+import com.musala.drones.service.FleetIndex;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Component
+@Slf4j
+public class FleetIndexScheduler {
+
+    private final FleetIndex fleetIndex;
+
+    public FleetIndexScheduler(FleetIndex fleetIndex) {
+        this.fleetIndex = fleetIndex;
+    }
+
+    @Scheduled(fixedDelayString = "${fleet.index.checkPeriod}")
+    public void checkFleetIndex() {
+        if (!fleetIndex.isEnabled()) {
+            return;
+        }
+        int mismatches = fleetIndex.countMismatches();
+        if (mismatches > 0) {
+            log.warn("Fleet index differs from database in {} drones, rebuilding it", mismatches);
+            fleetIndex.rebuild();
+        }
+    }
+}
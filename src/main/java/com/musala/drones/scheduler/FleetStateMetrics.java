@@ -0,0 +1,48 @@
+package com.musala.drones.scheduler;
+
+import com.musala.drones.entity.State;
+import com.musala.drones.repository.DroneRepository;
+import com.musala.drones.service.FleetIndex;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Publishes the number of drones in every state as the {@code drones.fleet} gauge tagged by state.
+ * With the fleet index enabled the gauge reads it directly, otherwise it shows counts of the last grouped query,
+ * which runs every {@code metrics.fleet.refreshPeriod} rather than on every scrape.
+ */
+@Component
+public class FleetStateMetrics {
+
+    private final DroneRepository droneRepository;
+    private final FleetIndex fleetIndex;
+    private final Map<State, AtomicInteger> drones = new EnumMap<>(State.class);
+
+    public FleetStateMetrics(DroneRepository droneRepository, FleetIndex fleetIndex, MeterRegistry meterRegistry) {
+        this.droneRepository = droneRepository;
+        this.fleetIndex = fleetIndex;
+        for (State state : State.values()) {
+            AtomicInteger count = new AtomicInteger();
+            drones.put(state, count);
+            Gauge.builder("drones.fleet", () -> fleetIndex.isEnabled() ? fleetIndex.countByState(state) : count.get())
+                    .description("Drones in the state")
+                    .tag("state", state.name())
+                    .register(meterRegistry);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${metrics.fleet.refreshPeriod}")
+    public void refreshFleetState() {
+        if (fleetIndex.isEnabled()) {
+            return;
+        }
+        Map<State, Integer> counts = droneRepository.countByState();
+        drones.forEach((state, count) -> count.set(counts.getOrDefault(state, 0)));
+    }
+}
@@ -0,0 +1,32 @@
+package com.musala.drones.scheduler;
+
+import com.musala.drones.repository.IdempotencyKeyRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Component
+@Slf4j
+public class IdempotencyKeyRetentionScheduler {
+
+    private final IdempotencyKeyRepository idempotencyKeyRepository;
+    private final Duration ttl;
+
+    public IdempotencyKeyRetentionScheduler(IdempotencyKeyRepository idempotencyKeyRepository,
+                                            @Value("${drone.idempotency.ttl}") Duration ttl) {
+        this.idempotencyKeyRepository = idempotencyKeyRepository;
+        this.ttl = ttl;
+    }
+
+    /**
+     * Expired keys are not replayed anyway, this only keeps the table small.
+     */
+    @Scheduled(fixedRateString = "${drone.idempotency.cleanupPeriod}")
+    public void deleteExpiredKeys() {
+        int deleted = idempotencyKeyRepository.deleteExpired(ttl);
+        log.debug("Deleted {} expired idempotency keys", deleted);
+    }
+}
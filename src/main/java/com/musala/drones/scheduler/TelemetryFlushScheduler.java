@@ -0,0 +1,20 @@
+package com.musala.drones.scheduler;
+
+import com.musala.drones.service.TelemetryBuffer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Component
+public class TelemetryFlushScheduler {
+
+    private final TelemetryBuffer telemetryBuffer;
+
+    public TelemetryFlushScheduler(TelemetryBuffer telemetryBuffer) {
+        this.telemetryBuffer = telemetryBuffer;
+    }
+
+    @Scheduled(fixedDelayString = "${drone.telemetry.flushPeriod}")
+    public void flushTelemetry() {
+        telemetryBuffer.flush();
+    }
+}
@@ -0,0 +1,80 @@
+package com.musala.drones.service;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.musala.drones.entity.Drone;
+import com.musala.drones.repository.DroneRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Read-through cache of drone aggregates by serial number for read only requests.
+ * Cached drones are shared between requests and must not be modified. Every write of drones goes through
+ * {@link #invalidate(Collection)}, so other in-memory views of the fleet can follow changes as its listeners.
+ */
+@Component
+public class DroneCache {
+
+    private final LoadingCache<String, Drone> cache;
+    private final List<Consumer<Collection<String>>> listeners = new CopyOnWriteArrayList<>();
+
+    public DroneCache(DroneRepository droneRepository,
+                      @Value("${drone.cache.ttl}") Duration ttl,
+                      @Value("${drone.cache.maxSize}") long maxSize,
+                      MeterRegistry meterRegistry) {
+        this.cache = Caffeine.newBuilder()
+                .expireAfterWrite(ttl)
+                .maximumSize(maxSize)
+                .recordStats()
+                .build(droneRepository::findBySerialNumber);
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "drones");
+    }
+
+    @Nullable
+    public Drone get(String serial) {
+        return cache.get(serial);
+    }
+
+    /**
+     * Listener is called with serial numbers of changed drones once the change is committed.
+     */
+    public void addChangeListener(Consumer<Collection<String>> listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Evicts drones right away and once more after the current transaction commits,
+     * so concurrent reads can't put back a state which is about to change.
+     */
+    public void invalidate(Collection<String> serials) {
+        cache.invalidateAll(serials);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    cache.invalidateAll(serials);
+                    notifyListeners(serials);
+                }
+            });
+        } else {
+            notifyListeners(serials);
+        }
+    }
+
+    private void notifyListeners(Collection<String> serials) {
+        if (!serials.isEmpty()) {
+            listeners.forEach(listener -> listener.accept(serials));
+        }
+    }
+}
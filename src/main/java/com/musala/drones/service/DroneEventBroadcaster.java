@@ -0,0 +1,195 @@
+package com.musala.drones.service;
+
+import com.musala.drones.entity.DronePartial;
+import com.musala.drones.model.DroneEventDto;
+import com.musala.drones.model.DroneEventType;
+import com.musala.drones.repository.DroneRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Predicate;
+
+/**
+ * Fans drone events out to subscribers such as server-sent event streams. Drones changed by committed writes are
+ * read once per batch of changes, however many subscribers there are, and nothing is read without subscribers.
+ * Every subscriber has a buffer of {@code drone.events.bufferSize} events drained on the event executor.
+ * A subscriber whose buffer is full is evicted, so a slow consumer neither holds back others nor grows the heap.
+ */
+@Component
+@Slf4j
+public class DroneEventBroadcaster {
+
+    private static final int LOOKUP_BATCH_SIZE = 1000;
+
+    private final DroneRepository droneRepository;
+    private final Executor eventExecutor;
+    private final int bufferSize;
+    private final Set<Subscription> subscriptions = ConcurrentHashMap.newKeySet();
+    private final Set<String> changedSerials = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean lookupScheduled = new AtomicBoolean();
+    private final Counter evictions;
+
+    public DroneEventBroadcaster(DroneRepository droneRepository,
+                                 DroneCache droneCache,
+                                 Executor eventExecutor,
+                                 @Value("${drone.events.bufferSize}") int bufferSize,
+                                 MeterRegistry meterRegistry) {
+        this.droneRepository = droneRepository;
+        this.eventExecutor = eventExecutor;
+        this.bufferSize = bufferSize;
+        droneCache.addChangeListener(this::onChanged);
+        Gauge.builder("drones.events.subscribers", subscriptions, Set::size)
+                .description("Subscribers of drone events")
+                .register(meterRegistry);
+        this.evictions = Counter.builder("drones.events.evictions")
+                .description("Subscribers evicted because their event buffer was full")
+                .register(meterRegistry);
+    }
+
+    /**
+     * @param filter events the subscriber is interested in
+     * @param sink   receives events one at a time on the event executor
+     */
+    public Subscription subscribe(Predicate<DroneEventDto> filter, EventSink sink) {
+        Subscription subscription = new Subscription(filter, sink);
+        subscriptions.add(subscription);
+        return subscription;
+    }
+
+    public void unsubscribe(Subscription subscription) {
+        subscriptions.remove(subscription);
+    }
+
+    /**
+     * Publishes snapshots recorded by a battery audit pass.
+     */
+    public void publishAudited(Collection<DronePartial> drones) {
+        if (subscriptions.isEmpty()) {
+            return;
+        }
+        for (DronePartial drone : drones) {
+            publish(DroneEventDto.fromPartial(DroneEventType.AUDITED, drone));
+        }
+    }
+
+    private void publish(DroneEventDto event) {
+        for (Subscription subscription : subscriptions) {
+            subscription.offer(event);
+        }
+    }
+
+    private void onChanged(Collection<String> serials) {
+        if (subscriptions.isEmpty()) {
+            return;
+        }
+        changedSerials.addAll(serials);
+        if (lookupScheduled.compareAndSet(false, true)) {
+            eventExecutor.execute(this::publishChanged);
+        }
+    }
+
+    /**
+     * Reads drones changed since the last lookup. Only one lookup runs at a time, so events of a drone are published
+     * in the order of its changes, and changes committed meanwhile are read together by the next one.
+     */
+    private void publishChanged() {
+        do {
+            try {
+                List<String> serials = new ArrayList<>();
+                for (Iterator<String> iterator = changedSerials.iterator(); iterator.hasNext(); ) {
+                    serials.add(iterator.next());
+                    iterator.remove();
+                }
+                for (int from = 0; from < serials.size(); from += LOOKUP_BATCH_SIZE) {
+                    List<String> batch = serials.subList(from, Math.min(from + LOOKUP_BATCH_SIZE, serials.size()));
+                    for (DronePartial drone : droneRepository.findPartialsBySerialNumbers(batch)) {
+                        publish(DroneEventDto.fromPartial(DroneEventType.CHANGED, drone));
+                    }
+                }
+            } catch (RuntimeException e) {
+                log.warn("Failed to read changed drones for events", e);
+            } finally {
+                lookupScheduled.set(false);
+            }
+        } while (!changedSerials.isEmpty() && lookupScheduled.compareAndSet(false, true));
+    }
+
+    public int subscriberCount() {
+        return subscriptions.size();
+    }
+
+    public interface EventSink {
+
+        void send(DroneEventDto event) throws IOException;
+
+        /**
+         * Called once the subscriber is evicted for not keeping up with events.
+         */
+        void evicted();
+    }
+
+    public final class Subscription {
+
+        private final Predicate<DroneEventDto> filter;
+        private final EventSink sink;
+        private final BlockingQueue<DroneEventDto> buffer = new ArrayBlockingQueue<>(bufferSize);
+        private final AtomicBoolean draining = new AtomicBoolean();
+
+        private Subscription(Predicate<DroneEventDto> filter, EventSink sink) {
+            this.filter = filter;
+            this.sink = sink;
+        }
+
+        private void offer(DroneEventDto event) {
+            if (!filter.test(event)) {
+                return;
+            }
+            if (!buffer.offer(event)) {
+                evict();
+                return;
+            }
+            if (draining.compareAndSet(false, true)) {
+                eventExecutor.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            do {
+                DroneEventDto event;
+                while ((event = buffer.poll()) != null) {
+                    try {
+                        sink.send(event);
+                    } catch (IOException | RuntimeException e) {
+                        log.debug("Unsubscribe from drone events after failed send: {}", e.getMessage());
+                        unsubscribe(this);
+                        return;
+                    }
+                }
+                draining.set(false);
+            } while (!buffer.isEmpty() && draining.compareAndSet(false, true));
+        }
+
+        private void evict() {
+            if (subscriptions.remove(this)) {
+                evictions.increment();
+                buffer.clear();
+                sink.evicted();
+            }
+        }
+    }
+}
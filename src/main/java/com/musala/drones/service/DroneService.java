@@ -1,21 +1,59 @@
 package com.musala.drones.service;
 
+import com.musala.drones.entity.State;
 import com.musala.drones.model.DroneDto;
 import com.musala.drones.model.MedicationDto;
 import com.musala.drones.model.OutputResult;
+import com.musala.drones.model.TelemetryDto;
+import com.musala.drones.model.TransitionRequest;
+import org.springframework.data.domain.Pageable;
 
+import java.time.Instant;
 import java.util.List;
 
 public interface DroneService {
 
     OutputResult registerDrone(DroneDto droneDto);
 
+    OutputResult registerDrones(List<DroneDto> droneDtos);
+
     OutputResult loadDrone(String serial, List<MedicationDto> medicationDtos);
 
-    OutputResult getAvailableDronesForLoading();
+    /**
+     * Spreads medications over available drones and loads all of them in one transaction, or none if they don't fit.
+     */
+    OutputResult planLoading(List<MedicationDto> medicationDtos, PlanningMode mode);
+
+    default OutputResult getAvailableDronesForLoading() {
+        return getAvailableDronesForLoading(0, Pageable.unpaged());
+    }
+
+    /**
+     * Finds drones which can be loaded with {@code weight} grams right now.
+     */
+    OutputResult getAvailableDronesForLoading(int weight, Pageable pageable);
+
+    /**
+     * Counts drones which can be loaded with {@code weight} grams right now.
+     */
+    OutputResult getCapacity(int weight);
+
+    OutputResult transitionDrone(String serial, State to);
+
+    /**
+     * Moves every drone matching the request in one go, drones which can't move are skipped.
+     */
+    OutputResult transitionDrones(TransitionRequest request);
 
     OutputResult getMedications(String serial);
 
     OutputResult getBatteryLevel(String serial);
 
+    OutputResult getBatteryHistory(String serial, Instant from, Instant to);
+
+    /**
+     * Accepts battery and state reports of drones, they are written to the database asynchronously.
+     */
+    OutputResult reportTelemetry(List<TelemetryDto> reports);
+
 }
@@ -1,93 +1,474 @@
 package com.musala.drones.service;
 
 import com.musala.drones.entity.Drone;
+import com.musala.drones.entity.DronePartial;
+import com.musala.drones.entity.DroneTransition;
 import com.musala.drones.entity.Medication;
+import com.musala.drones.entity.MedicationCatalogEntry;
+import com.musala.drones.entity.Model;
+import com.musala.drones.entity.ModelCapacity;
 import com.musala.drones.entity.State;
+import com.musala.drones.model.BatteryAuditDto;
+import com.musala.drones.model.CapacityDto;
 import com.musala.drones.model.DroneDto;
 import com.musala.drones.model.MedicationDto;
 import com.musala.drones.model.OutputResult;
+import com.musala.drones.model.PlannedLoadDto;
+import com.musala.drones.model.RegistrationResult;
+import com.musala.drones.model.TelemetryDto;
+import com.musala.drones.model.TelemetryResult;
+import com.musala.drones.model.TransitionDto;
+import com.musala.drones.model.TransitionRequest;
+import com.musala.drones.repository.BatteryAuditRepository;
 import com.musala.drones.repository.DroneRepository;
+import com.musala.drones.repository.DroneRepositoryCustom;
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.CollectionUtils;
 
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
+/**
+ * Every operation is timed as {@code drones.operations} tagged by operation, and every request refused
+ * because of the fleet's state is counted as {@code drones.rejections} tagged by operation and reason.
+ */
 @Component
 public class DroneServiceImpl implements DroneService {
 
-    private static final int LOW_BATTERY_LEVEL = 25;
+    static final int LOW_BATTERY_LEVEL = 25;
+    private static final String OPERATIONS_TIMER = "drones.operations";
     private final DroneRepository droneRepository;
+    private final BatteryAuditRepository batteryAuditRepository;
+    private final MedicationCatalog medicationCatalog;
+    private final DroneCache droneCache;
+    private final TelemetryBuffer telemetryBuffer;
+    private final DroneTransitionEngine transitionEngine;
+    private final FleetIndex fleetIndex;
+    private final LoadingMode loadingMode;
+    private final int maxRetries;
+    private final MeterRegistry meterRegistry;
+    private final Timer lockWait;
 
-    public DroneServiceImpl(DroneRepository droneRepository) {
+    public DroneServiceImpl(DroneRepository droneRepository,
+                            BatteryAuditRepository batteryAuditRepository,
+                            MedicationCatalog medicationCatalog,
+                            DroneCache droneCache,
+                            TelemetryBuffer telemetryBuffer,
+                            DroneTransitionEngine transitionEngine,
+                            FleetIndex fleetIndex,
+                            @Value("${drone.loading.mode}") LoadingMode loadingMode,
+                            @Value("${drone.loading.maxRetries}") int maxRetries,
+                            MeterRegistry meterRegistry) {
         this.droneRepository = droneRepository;
+        this.batteryAuditRepository = batteryAuditRepository;
+        this.medicationCatalog = medicationCatalog;
+        this.droneCache = droneCache;
+        this.telemetryBuffer = telemetryBuffer;
+        this.transitionEngine = transitionEngine;
+        this.fleetIndex = fleetIndex;
+        this.loadingMode = loadingMode;
+        this.maxRetries = maxRetries;
+        this.meterRegistry = meterRegistry;
+        this.lockWait = Timer.builder("drones.loading.lock.wait")
+                .description("Time waiting for the drone row lock while loading")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
     }
 
     @Override
+    @Timed(value = OPERATIONS_TIMER, extraTags = {"operation", "register"}, histogram = true)
     public OutputResult registerDrone(DroneDto droneDto) {
-        Drone drone = new Drone(droneDto.getSerialNumber(), droneDto.getModel(), droneDto.getWeightLimit(), droneDto.getBatteryCapacity(), State.IDLE);
-        Drone saved = droneRepository.save(drone);
+        Drone saved = droneRepository.save(toDrone(droneDto));
+        droneCache.invalidate(List.of(saved.getSerialNumber()));
         return OutputResult.success(DroneDto.fromDrone(saved));
     }
 
     @Override
     @Transactional
+    @Timed(value = OPERATIONS_TIMER, extraTags = {"operation", "registerAll"}, histogram = true)
+    public OutputResult registerDrones(List<DroneDto> droneDtos) {
+        if (CollectionUtils.isEmpty(droneDtos)) {
+            return OutputResult.error("Drones list is empty");
+        }
+
+        List<Drone> drones = droneDtos.stream().map(this::toDrone).collect(Collectors.toList());
+        int[] inserted = droneRepository.insertAllIgnoringDuplicates(drones);
+        droneCache.invalidate(drones.stream().map(Drone::getSerialNumber).collect(Collectors.toList()));
+        List<RegistrationResult> results = new ArrayList<>(drones.size());
+        for (int i = 0; i < drones.size(); i++) {
+            String serial = drones.get(i).getSerialNumber();
+            results.add(inserted[i] > 0
+                    ? RegistrationResult.registered(serial)
+                    : RegistrationResult.failed(serial, "Drone with such serial number already exists"));
+        }
+        return OutputResult.success(results);
+    }
+
+    @Override
+    @Transactional
+    @Timed(value = OPERATIONS_TIMER, extraTags = {"operation", "load"}, histogram = true)
     public OutputResult loadDrone(String serial, List<MedicationDto> medicationDtos) {
         if (CollectionUtils.isEmpty(medicationDtos)) {
             return OutputResult.error("Medications list is empty");
         }
 
+        OutputResult catalogError = checkCatalog("load", medicationDtos);
+        if (catalogError != null) {
+            return catalogError;
+        }
+        Map<String, Integer> quantities = new LinkedHashMap<>();
+        int summedWeight = 0;
+        for (MedicationDto medicationDto : medicationDtos) {
+            quantities.merge(medicationDto.getCode(), 1, Integer::sum);
+            summedWeight += medicationDto.getWeight();
+        }
+        List<Medication> medications = quantities.entrySet().stream()
+                .map(quantity -> new Medication(quantity.getKey(), quantity.getValue()))
+                .collect(Collectors.toList());
+        return loadingMode == LoadingMode.OPTIMISTIC
+                ? loadOptimistically(serial, medicationDtos, medications, summedWeight)
+                : loadWithLock(serial, medicationDtos, medications, summedWeight);
+    }
+
+    /**
+     * Checks medications against the catalog and each other without adding anything to it, so a request which is
+     * rejected later doesn't leave its medications in the catalog.
+     *
+     * @return error result if some medication doesn't match its catalog entry, or an earlier medication of the request
+     * with the same code, or null if all of them match
+     */
+    private OutputResult checkCatalog(String operation, List<MedicationDto> medicationDtos) {
+        Map<String, MedicationDto> expected = new HashMap<>();
+        medicationCatalog.findAll(medicationDtos.stream().map(MedicationDto::getCode).collect(Collectors.toSet()))
+                .forEach((code, entry) -> expected.put(code, MedicationDto.fromCatalogEntry(entry)));
+        for (MedicationDto medicationDto : medicationDtos) {
+            MedicationDto known = expected.putIfAbsent(medicationDto.getCode(), medicationDto);
+            if (known != null && !known.equals(medicationDto)) {
+                return reject(operation, "catalog_mismatch", "Medication with code: " + known.getCode() + " doesn't match catalog entry with name: " + known.getName()
+                        + ", weight: " + known.getWeight() + ", image: " + known.getImage());
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Adds unknown medications to the catalog once the request is going to be applied, they were checked
+     * by {@link #checkCatalog} before.
+     *
+     * @throws DuplicateKeyException if a medication was added to the catalog by a concurrent request with other
+     *                               details meanwhile, the request is rolled back then
+     */
+    private void registerInCatalog(List<MedicationDto> medicationDtos) {
+        Map<String, MedicationCatalogEntry> catalog = medicationCatalog.register(medicationDtos.stream()
+                .map(MedicationDto::toCatalogEntry)
+                .collect(Collectors.toList()));
+        for (MedicationDto medicationDto : medicationDtos) {
+            MedicationCatalogEntry entry = catalog.get(medicationDto.getCode());
+            if (!MedicationDto.fromCatalogEntry(entry).equals(medicationDto)) {
+                throw new DuplicateKeyException("Medication with code: " + entry.getCode() + " was added to the catalog concurrently with name: "
+                        + entry.getName() + ", weight: " + entry.getWeight() + ", image: " + entry.getImage());
+            }
+        }
+    }
+
+    @Override
+    @Transactional
+    @Timed(value = OPERATIONS_TIMER, extraTags = {"operation", "plan"}, histogram = true)
+    public OutputResult planLoading(List<MedicationDto> medicationDtos, PlanningMode mode) {
+        if (CollectionUtils.isEmpty(medicationDtos)) {
+            return OutputResult.error("Medications list is empty");
+        }
+        OutputResult catalogError = checkCatalog("plan", medicationDtos);
+        if (catalogError != null) {
+            return catalogError;
+        }
+
+        int[] weights = medicationDtos.stream().mapToInt(MedicationDto::getWeight).toArray();
+        for (int attempt = 0; attempt <= maxRetries; attempt++) {
+            // drones are planned from an unlocked read, only the chosen ones are claimed afterwards
+            List<DronePartial> drones = droneRepository.findAvailableByWeightLimit(LOW_BATTERY_LEVEL);
+            int[] capacities = drones.stream().mapToInt(DronePartial::getWeightLimit).toArray();
+            int[] assignment = LoadPlanner.plan(weights, capacities, mode);
+            if (assignment == null) {
+                return reject("plan", "no_capacity", "Can't plan loading of " + medicationDtos.size() + " medications, "
+                        + drones.size() + " available drones can't carry them");
+            }
+
+            Map<Integer, Map<String, Integer>> quantitiesByDrone = new LinkedHashMap<>();
+            int[] loadedWeights = new int[drones.size()];
+            for (int i = 0; i < assignment.length; i++) {
+                quantitiesByDrone.computeIfAbsent(assignment[i], drone -> new LinkedHashMap<>())
+                        .merge(medicationDtos.get(i).getCode(), 1, Integer::sum);
+                loadedWeights[assignment[i]] += weights[i];
+            }
+            List<String> serials = new ArrayList<>(quantitiesByDrone.size());
+            Map<Long, List<Medication>> medicationsByDrone = new LinkedHashMap<>();
+            List<PlannedLoadDto> loads = new ArrayList<>(quantitiesByDrone.size());
+            quantitiesByDrone.forEach((index, quantities) -> {
+                DronePartial drone = drones.get(index);
+                serials.add(drone.getSerialNumber());
+                medicationsByDrone.put(drone.getId(), quantities.entrySet().stream()
+                        .map(quantity -> new Medication(quantity.getKey(), quantity.getValue()))
+                        .collect(Collectors.toList()));
+                loads.add(new PlannedLoadDto(drone.getSerialNumber(), loadedWeights[index], quantities));
+            });
+
+            if (droneRepository.updateAllStatesIfLoadable(medicationsByDrone.keySet(), LOW_BATTERY_LEVEL, State.LOADED)) {
+                droneCache.invalidate(serials);
+                registerInCatalog(medicationDtos);
+                droneRepository.deleteAllMedications(medicationsByDrone.keySet());
+                droneRepository.insertAllMedications(medicationsByDrone);
+                return OutputResult.success(loads);
+            }
+        }
+        return conflict("plan", "Can't plan loading of " + medicationDtos.size() + " medications, "
+                + "available drones are changed concurrently, try again later");
+    }
+
+    private OutputResult loadWithLock(String serial, List<MedicationDto> medicationDtos, List<Medication> medications, int summedWeight) {
+        long lockStart = System.nanoTime();
         Drone drone = droneRepository.findWithLockBySerialNumber(serial);
+        lockWait.record(System.nanoTime() - lockStart, TimeUnit.NANOSECONDS);
+        OutputResult error = checkLoadable(serial, drone, summedWeight);
+        if (error != null) {
+            return error;
+        }
+
+        droneRepository.updateState(drone.getId(), State.IDLE, State.LOADED);
+        registerInCatalog(medicationDtos);
+        storeMedications(drone, medications);
+        drone.setState(State.LOADED);
+        return OutputResult.success(DroneDto.fromDrone(drone));
+    }
+
+    private OutputResult loadOptimistically(String serial, List<MedicationDto> medicationDtos, List<Medication> medications, int summedWeight) {
+        for (int attempt = 0; attempt <= maxRetries; attempt++) {
+            Drone drone = droneRepository.findBySerialNumber(serial);
+            OutputResult error = checkLoadable(serial, drone, summedWeight);
+            if (error != null) {
+                return error;
+            }
+
+            if (droneRepository.updateStateIfLoadable(drone.getId(), LOW_BATTERY_LEVEL, State.LOADED)) {
+                registerInCatalog(medicationDtos);
+                storeMedications(drone, medications);
+                drone.setState(State.LOADED);
+                return OutputResult.success(DroneDto.fromDrone(drone));
+            }
+        }
+        return conflict("load", "Can't load drone with serial number: " + serial + ", it is changed concurrently, try again later");
+    }
+
+    /**
+     * Writes only the new medication rows, rows of a previous load are deleted only if there are any.
+     */
+    private void storeMedications(Drone drone, List<Medication> medications) {
+        if (!drone.getMedications().isEmpty()) {
+            droneRepository.deleteMedications(drone.getId());
+        }
+        droneRepository.insertMedications(drone.getId(), medications);
+        drone.setMedications(medications);
+        droneCache.invalidate(List.of(drone.getSerialNumber()));
+    }
+
+    /**
+     * @return error result if the drone can't be loaded with the given weight or null if it can
+     */
+    private OutputResult checkLoadable(String serial, Drone drone, int summedWeight) {
         if (drone == null) {
-            return OutputResult.error("Can't find drone with serial number: " + serial);
+            return reject("load", "not_found", "Can't find drone with serial number: " + serial);
         }
         if (drone.getState() != State.IDLE) {
-            return OutputResult.error("Can't load drone in state: " + drone.getState() + ", it should be IDLE");
+            return reject("load", "wrong_state", "Can't load drone in state: " + drone.getState() + ", it should be IDLE");
         }
         if (drone.getBatteryCapacity() < LOW_BATTERY_LEVEL) {
-            return OutputResult.error("Can't load drone when it's battery level below " + LOW_BATTERY_LEVEL + ", actual level: " + drone.getBatteryCapacity());
+            return reject("load", "low_battery", "Can't load drone when it's battery level below " + LOW_BATTERY_LEVEL + ", actual level: " + drone.getBatteryCapacity());
         }
-
-        int summedWeight = medicationDtos.stream().map(MedicationDto::getWeight).mapToInt(Integer::intValue).sum();
         if (summedWeight > drone.getWeightLimit()) {
-            return OutputResult.error("Drone can't be loaded with weight: " + summedWeight + "gr, it can carry only: " + drone.getWeightLimit());
+            return reject("load", "overweight", "Drone can't be loaded with weight: " + summedWeight + "gr, it can carry only: " + drone.getWeightLimit());
         }
+        return null;
+    }
 
-        List<Medication> medications = medicationDtos.stream()
-                .map(medicationDto -> new Medication(medicationDto.getName(), medicationDto.getWeight(), medicationDto.getCode(), medicationDto.getImage()))
-                .collect(Collectors.toList());
-        drone.setMedications(medications);
-        drone.setState(State.LOADED);
-        Drone saved = droneRepository.save(drone);
-        return OutputResult.success(DroneDto.fromDrone(saved));
+    private OutputResult reject(String operation, String reason, String message) {
+        meterRegistry.counter("drones.rejections", "operation", operation, "reason", reason).increment();
+        return OutputResult.error(message);
+    }
+
+    private OutputResult conflict(String operation, String message) {
+        return reject(operation, "conflict", message)
+                .setRetryable(true);
     }
 
     @Override
-    public OutputResult getAvailableDronesForLoading() {
-        List<DroneDto> drones = droneRepository.findByState(State.IDLE).stream()
-                .filter(drone -> drone.getBatteryCapacity() >= LOW_BATTERY_LEVEL)
-                .map(DroneDto::fromDrone)
+    @Timed(value = OPERATIONS_TIMER, extraTags = {"operation", "available"}, histogram = true)
+    public OutputResult getAvailableDronesForLoading(int weight, Pageable pageable) {
+        if (weight < 0) {
+            return OutputResult.error("Weight can't be negative");
+        }
+        for (Sort.Order order : pageable.getSort()) {
+            if (!DroneRepositoryCustom.AVAILABLE_SORT_PROPERTIES.contains(order.getProperty())) {
+                return OutputResult.error("Can't sort available drones by: " + order.getProperty());
+            }
+        }
+        List<DronePartial> available = fleetIndex.isEnabled()
+                ? fleetIndex.findAvailable(weight, pageable)
+                : droneRepository.findAvailable(LOW_BATTERY_LEVEL, weight, pageable);
+        List<DroneDto> drones = available.stream()
+                .map(DroneDto::fromPartial)
                 .collect(Collectors.toList());
         return OutputResult.success(drones);
     }
 
     @Override
-    public OutputResult getMedications(String serial) {
+    @Timed(value = OPERATIONS_TIMER, extraTags = {"operation", "capacity"}, histogram = true)
+    public OutputResult getCapacity(int weight) {
+        if (weight < 0) {
+            return OutputResult.error("Weight can't be negative");
+        }
+        List<ModelCapacity> capacities;
+        if (fleetIndex.isEnabled()) {
+            int[] dronesByModel = new int[Model.values().length];
+            long[] weightLimitByModel = new long[Model.values().length];
+            fleetIndex.countAvailable(weight, dronesByModel, weightLimitByModel);
+            capacities = new ArrayList<>();
+            for (Model model : Model.values()) {
+                if (dronesByModel[model.ordinal()] > 0) {
+                    capacities.add(new ModelCapacity(model, dronesByModel[model.ordinal()], weightLimitByModel[model.ordinal()]));
+                }
+            }
+        } else {
+            capacities = droneRepository.countAvailableByModel(LOW_BATTERY_LEVEL, weight);
+        }
+        Map<Model, Integer> dronesByModel = new EnumMap<>(Model.class);
+        int drones = 0;
+        long weightLimit = 0;
+        for (ModelCapacity capacity : capacities) {
+            dronesByModel.put(capacity.getModel(), capacity.getDrones());
+            drones += capacity.getDrones();
+            weightLimit += capacity.getWeightLimit();
+        }
+        return OutputResult.success(new CapacityDto(weight, drones, weightLimit, dronesByModel));
+    }
+
+    @Override
+    @Transactional
+    @Timed(value = OPERATIONS_TIMER, extraTags = {"operation", "transition"}, histogram = true)
+    public OutputResult transitionDrone(String serial, State to) {
         Drone drone = droneRepository.findBySerialNumber(serial);
+        if (drone == null) {
+            return reject("transition", "not_found", "Can't find drone with serial number: " + serial);
+        }
+        if (!drone.getState().canTransitionTo(to)) {
+            return reject("transition", "wrong_state", "Can't move drone from state: " + drone.getState() + " to state: " + to);
+        }
+        if (drone.getState() == State.IDLE && drone.getBatteryCapacity() < LOW_BATTERY_LEVEL) {
+            return reject("transition", "low_battery", "Can't move drone from state: IDLE when it's battery level below " + LOW_BATTERY_LEVEL
+                    + ", actual level: " + drone.getBatteryCapacity());
+        }
+        List<DroneTransition> transitions = transitionEngine.apply(drone.getState(), to, List.of(serial), null);
+        if (transitions.isEmpty()) {
+            return conflict("transition", "Can't move drone with serial number: " + serial + ", it is changed concurrently, try again later");
+        }
+        return OutputResult.success(TransitionDto.fromTransition(transitions.get(0)));
+    }
+
+    @Override
+    @Transactional
+    @Timed(value = OPERATIONS_TIMER, extraTags = {"operation", "transitionAll"}, histogram = true)
+    public OutputResult transitionDrones(TransitionRequest request) {
+        if (request.getFrom() != null && !request.getFrom().canTransitionTo(request.getTo())) {
+            return OutputResult.error("Can't move drone from state: " + request.getFrom() + " to state: " + request.getTo());
+        }
+        if (request.getSerialNumbers() != null && request.getSerialNumbers().isEmpty()) {
+            return OutputResult.error("Serial numbers list is empty");
+        }
+        List<TransitionDto> transitions = transitionEngine.apply(request.getFrom(), request.getTo(), request.getSerialNumbers(), request.getModel())
+                .stream()
+                .map(TransitionDto::fromTransition)
+                .collect(Collectors.toList());
+        return OutputResult.success(transitions);
+    }
+
+    @Override
+    @Timed(value = OPERATIONS_TIMER, extraTags = {"operation", "medications"}, histogram = true)
+    public OutputResult getMedications(String serial) {
+        Drone drone = droneCache.get(serial);
         if (drone == null) {
             return OutputResult.error("Can't find drone with serial number: " + serial);
         }
-        List<MedicationDto> medications = drone.getMedications().stream().map(MedicationDto::fromMedication).collect(Collectors.toList());
+        List<MedicationDto> medications = toMedicationDtos(drone.getMedications());
         return OutputResult.success(medications);
     }
 
     @Override
+    @Timed(value = OPERATIONS_TIMER, extraTags = {"operation", "battery"}, histogram = true)
     public OutputResult getBatteryLevel(String serial) {
-        Drone drone = droneRepository.findBySerialNumber(serial);
+        Drone drone = droneCache.get(serial);
         if (drone == null) {
             return OutputResult.error("Can't find drone with serial number: " + serial);
         }
         return OutputResult.success(drone.getBatteryCapacity());
     }
+
+    @Override
+    @Timed(value = OPERATIONS_TIMER, extraTags = {"operation", "batteryHistory"}, histogram = true)
+    public OutputResult getBatteryHistory(String serial, Instant from, Instant to) {
+        if (!from.isBefore(to)) {
+            return OutputResult.error("Time range is not valid: " + from + " should be before " + to);
+        }
+        if (!droneRepository.existsBySerialNumber(serial)) {
+            return OutputResult.error("Can't find drone with serial number: " + serial);
+        }
+        List<BatteryAuditDto> history = batteryAuditRepository.findBySerialNumber(serial, from, to).stream()
+                .map(BatteryAuditDto::fromBatteryAudit)
+                .collect(Collectors.toList());
+        return OutputResult.success(history);
+    }
+
+    @Override
+    @Timed(value = OPERATIONS_TIMER, extraTags = {"operation", "telemetry"}, histogram = true)
+    public OutputResult reportTelemetry(List<TelemetryDto> reports) {
+        if (CollectionUtils.isEmpty(reports)) {
+            return OutputResult.error("Telemetry reports list is empty");
+        }
+        telemetryBuffer.add(reports.stream().map(TelemetryDto::toDroneTelemetry).collect(Collectors.toList()));
+        return OutputResult.success(new TelemetryResult(reports.size(), 0));
+    }
+
+    /**
+     * Expands loaded medications into catalog entries, every entry is repeated as many times as it was loaded.
+     */
+    private List<MedicationDto> toMedicationDtos(List<Medication> medications) {
+        Map<String, MedicationCatalogEntry> catalog = medicationCatalog.findAll(medications.stream()
+                .map(Medication::getCode)
+                .collect(Collectors.toList()));
+        List<MedicationDto> medicationDtos = new ArrayList<>();
+        for (Medication medication : medications) {
+            MedicationDto medicationDto = MedicationDto.fromCatalogEntry(catalog.get(medication.getCode()));
+            for (int i = 0; i < medication.getQuantity(); i++) {
+                medicationDtos.add(medicationDto);
+            }
+        }
+        return medicationDtos;
+    }
+
+    private Drone toDrone(DroneDto droneDto) {
+        return new Drone(droneDto.getSerialNumber(), droneDto.getModel(), droneDto.getWeightLimit(), droneDto.getBatteryCapacity(), State.IDLE);
+    }
 }
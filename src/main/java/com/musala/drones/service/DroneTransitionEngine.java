@@ -0,0 +1,56 @@
+package com.musala.drones.service;
+
+import com.musala.drones.entity.DroneTransition;
+import com.musala.drones.entity.Model;
+import com.musala.drones.entity.State;
+import com.musala.drones.repository.DroneRepository;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Moves drones between states with one statement per source state instead of one statement per drone.
+ * Should be called in a transaction so a partly applied transition is rolled back.
+ */
+@Component
+public class DroneTransitionEngine {
+
+    private final DroneRepository droneRepository;
+    private final DroneCache droneCache;
+
+    public DroneTransitionEngine(DroneRepository droneRepository, DroneCache droneCache) {
+        this.droneRepository = droneRepository;
+        this.droneCache = droneCache;
+    }
+
+    /**
+     * Moves drones matching the filters to the {@code to} state. Drones leaving IDLE state should have battery level
+     * not lower than {@link DroneServiceImpl#LOW_BATTERY_LEVEL}, other drones are skipped.
+     *
+     * @param from          state to move drones from or null for every state allowed to move to the {@code to} state
+     * @param serialNumbers serial numbers of drones to move or null for any drone
+     * @param model         model of drones to move or null for any model
+     * @return applied transitions
+     * @throws IllegalArgumentException if drones can't move from the {@code from} state to the {@code to} state
+     */
+    public List<DroneTransition> apply(State from, State to, List<String> serialNumbers, Model model) {
+        if (from != null && !from.canTransitionTo(to)) {
+            throw new IllegalArgumentException("Can't move drones from " + from + " to " + to);
+        }
+        Set<State> sources = from != null ? EnumSet.of(from) : State.sourcesOf(to);
+        List<DroneTransition> transitions = new ArrayList<>();
+        List<String> serials = serialNumbers != null ? new ArrayList<>(new LinkedHashSet<>(serialNumbers)) : null;
+        for (State source : sources) {
+            int minBatteryCapacity = source == State.IDLE ? DroneServiceImpl.LOW_BATTERY_LEVEL : 0;
+            droneRepository.updateStates(source, to, minBatteryCapacity, serials, model)
+                    .forEach(serial -> transitions.add(new DroneTransition(serial, source, to)));
+        }
+        droneCache.invalidate(transitions.stream().map(DroneTransition::getSerialNumber).collect(Collectors.toList()));
+        return transitions;
+    }
+}
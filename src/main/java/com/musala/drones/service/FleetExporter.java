@@ -0,0 +1,83 @@
+package com.musala.drones.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.musala.drones.entity.Drone;
+import com.musala.drones.entity.Medication;
+import com.musala.drones.repository.DroneRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+
+/**
+ * Writes the whole fleet as newline delimited JSON, one drone with its medications per line, while it is read
+ * from the database. Memory use doesn't depend on the size of the fleet.
+ */
+@Component
+public class FleetExporter {
+
+    private final DroneRepository droneRepository;
+    private final ObjectMapper objectMapper;
+    private final int batchSize;
+
+    public FleetExporter(DroneRepository droneRepository,
+                         ObjectMapper objectMapper,
+                         @Value("${drone.export.batchSize}") int batchSize) {
+        this.droneRepository = droneRepository;
+        this.objectMapper = objectMapper;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Pages of the fleet are read in separate statements, so the export isn't one consistent snapshot, but it doesn't
+     * keep a connection for as long as the output takes to consume either.
+     *
+     * @return number of exported drones
+     */
+    public int export(OutputStream output) throws IOException {
+        int[] exported = new int[1];
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(output)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            // lines are ended by the drones themselves
+            generator.setRootValueSeparator(null);
+            try {
+                droneRepository.forEachDrone(batchSize, drone -> {
+                    try {
+                        writeDrone(generator, drone);
+                        // the first line goes out right away, the rest as the output buffer fills up
+                        if (exported[0]++ == 0) {
+                            generator.flush();
+                        }
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        }
+        return exported[0];
+    }
+
+    private static void writeDrone(JsonGenerator generator, Drone drone) throws IOException {
+        generator.writeStartObject();
+        generator.writeStringField("serialNumber", drone.getSerialNumber());
+        generator.writeStringField("model", drone.getModel().name());
+        generator.writeNumberField("weightLimit", drone.getWeightLimit());
+        generator.writeNumberField("batteryCapacity", drone.getBatteryCapacity());
+        generator.writeStringField("state", drone.getState().name());
+        generator.writeArrayFieldStart("medications");
+        for (Medication medication : drone.getMedications()) {
+            generator.writeStartObject();
+            generator.writeStringField("code", medication.getCode());
+            generator.writeNumberField("quantity", medication.getQuantity());
+            generator.writeEndObject();
+        }
+        generator.writeEndArray();
+        generator.writeEndObject();
+        generator.writeRaw('\n');
+    }
+}
@@ -0,0 +1,503 @@
+package com.musala.drones.service;
+
+import com.musala.drones.entity.DronePartial;
+import com.musala.drones.entity.Model;
+import com.musala.drones.entity.State;
+import com.musala.drones.repository.DroneRepository;
+import com.musala.drones.repository.DroneRepositoryCustom;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Optional in-memory copy of the fleet answering availability and capacity queries without the database.
+ * <p>
+ * Drones are kept in primitive arrays with bitsets per state and model and one for drones available for loading.
+ * Slots are ordered by weight limit, which never changes, and per model Fenwick trees over them keep the number
+ * and summed weight limit of available drones, so a query for a weight is a binary search and a few prefix sums.
+ * Drones registered after the last rebuild are appended unordered and scanned until there are enough of them
+ * to re-sort. Count queries don't allocate. The index follows committed writes through {@link DroneCache} change notifications:
+ * changed drones are collected and read in batches on the index executor, so writers neither wait for the reads nor
+ * see their failures. It is rebuilt from the database on startup and whenever the consistency check finds a difference.
+ */
+@Component
+@Slf4j
+public class FleetIndex {
+
+    private static final int REFRESH_BATCH_SIZE = 1000;
+
+    private final DroneRepository droneRepository;
+    private final Executor indexExecutor;
+    private final boolean enabled;
+    private final int batchSize;
+    private final StampedLock lock = new StampedLock();
+    private final Set<String> changedSerials = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean refreshScheduled = new AtomicBoolean();
+
+    // guarded by lock
+    private Slots slots = new Slots(0);
+    // guarded by lock, not null while the index is being rebuilt
+    private Set<String> changedDuringRebuild;
+
+    public FleetIndex(DroneRepository droneRepository,
+                      DroneCache droneCache,
+                      Executor indexExecutor,
+                      @Value("${fleet.index.enabled}") boolean enabled,
+                      @Value("${fleet.index.batchSize}") int batchSize) {
+        this.droneRepository = droneRepository;
+        this.indexExecutor = indexExecutor;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        if (enabled) {
+            droneCache.addChangeListener(this::onChanged);
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        if (enabled) {
+            rebuild();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Reads the whole fleet and replaces the index. Changes committed while the fleet is read are applied again
+     * afterwards, so they can't be lost.
+     */
+    public synchronized void rebuild() {
+        long stamp = lock.writeLock();
+        try {
+            changedDuringRebuild = new HashSet<>();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+
+        List<DronePartial> fleet = new ArrayList<>();
+        long lastId = 0;
+        List<DronePartial> batch;
+        do {
+            batch = droneRepository.findPartialsAfter(lastId, batchSize);
+            fleet.addAll(batch);
+            if (!batch.isEmpty()) {
+                lastId = batch.get(batch.size() - 1).getId();
+            }
+        } while (batch.size() == batchSize);
+        Slots rebuilt = Slots.sorted(fleet);
+
+        Set<String> changed;
+        stamp = lock.writeLock();
+        try {
+            slots = rebuilt;
+            changed = changedDuringRebuild;
+            changedDuringRebuild = null;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        if (!changed.isEmpty()) {
+            refresh(changed);
+        }
+        log.info("Fleet index is rebuilt with {} drones", fleet.size());
+    }
+
+    private void onChanged(Collection<String> serials) {
+        changedSerials.addAll(serials);
+        if (refreshScheduled.compareAndSet(false, true)) {
+            indexExecutor.execute(this::refreshChanged);
+        }
+    }
+
+    /**
+     * Reads drones changed since the last refresh. Only one refresh runs at a time and changes committed meanwhile
+     * are read together by the next one. A failed refresh leaves the index behind until the consistency check.
+     */
+    private void refreshChanged() {
+        do {
+            try {
+                List<String> serials = new ArrayList<>();
+                for (Iterator<String> iterator = changedSerials.iterator(); iterator.hasNext(); ) {
+                    serials.add(iterator.next());
+                    iterator.remove();
+                }
+                refresh(serials);
+            } catch (RuntimeException e) {
+                log.warn("Failed to refresh changed drones in fleet index", e);
+            } finally {
+                refreshScheduled.set(false);
+            }
+        } while (!changedSerials.isEmpty() && refreshScheduled.compareAndSet(false, true));
+    }
+
+    /**
+     * Re-reads the given drones from the database, unknown drones are added to the index.
+     */
+    public void refresh(Collection<String> serials) {
+        List<String> serialList = new ArrayList<>(serials);
+        for (int from = 0; from < serialList.size(); from += REFRESH_BATCH_SIZE) {
+            List<String> serialBatch = serialList.subList(from, Math.min(from + REFRESH_BATCH_SIZE, serialList.size()));
+            List<DronePartial> partials = droneRepository.findPartialsBySerialNumbers(serialBatch);
+            long stamp = lock.writeLock();
+            try {
+                if (changedDuringRebuild != null) {
+                    changedDuringRebuild.addAll(serialBatch);
+                }
+                partials.forEach(slots::put);
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+        sortNewDrones();
+    }
+
+    /**
+     * Sorts a copy of the index once enough new drones are appended to it. Queries go on meanwhile, the copy replaces
+     * the index only if nothing was put into it since.
+     */
+    private void sortNewDrones() {
+        Slots unsorted;
+        int modifications;
+        List<DronePartial> partials;
+        long stamp = lock.readLock();
+        try {
+            unsorted = slots;
+            if (unsorted.size - unsorted.sortedSize <= Math.max(1024, unsorted.sortedSize / 8)) {
+                return;
+            }
+            modifications = unsorted.modifications;
+            partials = unsorted.toPartials();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+        Slots sorted = Slots.sorted(partials);
+        stamp = lock.writeLock();
+        try {
+            if (slots == unsorted && unsorted.modifications == modifications) {
+                slots = sorted;
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Counts drones which can be loaded with {@code weight} grams right now.
+     *
+     * @param dronesByModel      filled with number of such drones by {@link Model#ordinal()}
+     * @param weightLimitByModel filled with summed weight limit of such drones by {@link Model#ordinal()}
+     * @return number of such drones
+     */
+    public int countAvailable(int weight, int[] dronesByModel, long[] weightLimitByModel) {
+        Arrays.fill(dronesByModel, 0);
+        Arrays.fill(weightLimitByModel, 0);
+        int count = 0;
+        long stamp = lock.readLock();
+        try {
+            Slots slots = this.slots;
+            int first = slots.firstSortedAtLeast(weight);
+            for (int model = 0; model < dronesByModel.length; model++) {
+                dronesByModel[model] = (int) (slots.availableDrones[model].sum(slots.sortedSize)
+                        - slots.availableDrones[model].sum(first));
+                weightLimitByModel[model] = slots.availableWeightLimit[model].sum(slots.sortedSize)
+                        - slots.availableWeightLimit[model].sum(first);
+                count += dronesByModel[model];
+            }
+            for (int i = slots.available.nextSetBit(slots.sortedSize); i >= 0; i = slots.available.nextSetBit(i + 1)) {
+                if (slots.weightLimits[i] >= weight) {
+                    dronesByModel[slots.models[i]]++;
+                    weightLimitByModel[slots.models[i]] += slots.weightLimits[i];
+                    count++;
+                }
+            }
+        } finally {
+            lock.unlockRead(stamp);
+        }
+        return count;
+    }
+
+    /**
+     * Finds drones which can be loaded with {@code weight} grams right now, in the order of
+     * {@link DroneRepositoryCustom#findAvailable}.
+     *
+     * @param pageable page to return, can be sorted only by {@link DroneRepositoryCustom#AVAILABLE_SORT_PROPERTIES}
+     */
+    public List<DronePartial> findAvailable(int weight, Pageable pageable) {
+        long stamp = lock.readLock();
+        try {
+            Slots slots = this.slots;
+            List<Integer> matching = new ArrayList<>();
+            // sorted slots from the first heavy enough one, then all the unsorted ones
+            for (int i = slots.available.nextSetBit(slots.firstSortedAtLeast(weight)); i >= 0; i = slots.available.nextSetBit(i + 1)) {
+                if (slots.weightLimits[i] >= weight) {
+                    matching.add(i);
+                }
+            }
+            matching.sort(slots.ordering(pageable.getSort()));
+            int from = 0;
+            int to = matching.size();
+            if (pageable.isPaged()) {
+                from = (int) Math.min(pageable.getOffset(), matching.size());
+                to = Math.min(from + pageable.getPageSize(), matching.size());
+            }
+            List<DronePartial> drones = new ArrayList<>(to - from);
+            for (int slot : matching.subList(from, to)) {
+                drones.add(slots.partial(slot));
+            }
+            return drones;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    public int countByState(State state) {
+        long stamp = lock.readLock();
+        try {
+            return slots.byState[state.ordinal()].cardinality();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Compares the index with the database.
+     *
+     * @return number of drones which are missing or differ in the index, or are in the index only
+     */
+    public int countMismatches() {
+        int mismatches = 0;
+        int indexed = 0;
+        long lastId = 0;
+        List<DronePartial> batch;
+        do {
+            batch = droneRepository.findPartialsAfter(lastId, batchSize);
+            long stamp = lock.readLock();
+            try {
+                for (DronePartial partial : batch) {
+                    if (slots.slotBySerial.containsKey(partial.getSerialNumber())) {
+                        indexed++;
+                    }
+                    if (!slots.matches(partial)) {
+                        mismatches++;
+                    }
+                }
+            } finally {
+                lock.unlockRead(stamp);
+            }
+            if (!batch.isEmpty()) {
+                lastId = batch.get(batch.size() - 1).getId();
+            }
+        } while (batch.size() == batchSize);
+
+        long stamp = lock.readLock();
+        try {
+            return mismatches + slots.size - indexed;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    private static final class Slots {
+
+        final BitSet[] byState = new BitSet[State.values().length];
+        final BitSet[] byModel = new BitSet[Model.values().length];
+        final BitSet available = new BitSet();
+        final Map<String, Integer> slotBySerial = new HashMap<>();
+        // over sorted slots only
+        final FenwickTree[] availableDrones = new FenwickTree[Model.values().length];
+        final FenwickTree[] availableWeightLimit = new FenwickTree[Model.values().length];
+        int size;
+        int sortedSize;
+        int modifications;
+        long[] ids;
+        String[] serials;
+        int[] weightLimits;
+        int[] batteries;
+        byte[] states;
+        byte[] models;
+
+        Slots(int capacity) {
+            Arrays.setAll(byState, i -> new BitSet());
+            Arrays.setAll(byModel, i -> new BitSet());
+            ids = new long[capacity];
+            serials = new String[capacity];
+            weightLimits = new int[capacity];
+            batteries = new int[capacity];
+            states = new byte[capacity];
+            models = new byte[capacity];
+            Arrays.setAll(availableDrones, i -> new FenwickTree(0));
+            Arrays.setAll(availableWeightLimit, i -> new FenwickTree(0));
+        }
+
+        static Slots sorted(List<DronePartial> fleet) {
+            fleet.sort(Comparator.comparingInt(DronePartial::getWeightLimit));
+            Slots slots = new Slots(fleet.size());
+            fleet.forEach(slots::put);
+            slots.sortedSize = slots.size;
+            Arrays.setAll(slots.availableDrones, i -> new FenwickTree(slots.sortedSize));
+            Arrays.setAll(slots.availableWeightLimit, i -> new FenwickTree(slots.sortedSize));
+            for (int i = slots.available.nextSetBit(0); i >= 0; i = slots.available.nextSetBit(i + 1)) {
+                slots.availableDrones[slots.models[i]].add(i, 1);
+                slots.availableWeightLimit[slots.models[i]].add(i, slots.weightLimits[i]);
+            }
+            return slots;
+        }
+
+        void put(DronePartial partial) {
+            modifications++;
+            Integer slot = slotBySerial.get(partial.getSerialNumber());
+            int i;
+            if (slot == null) {
+                i = size++;
+                if (i == ids.length) {
+                    grow();
+                }
+                slotBySerial.put(partial.getSerialNumber(), i);
+                ids[i] = partial.getId();
+                serials[i] = partial.getSerialNumber();
+                weightLimits[i] = partial.getWeightLimit();
+                models[i] = (byte) partial.getModel().ordinal();
+                byModel[models[i]].set(i);
+            } else {
+                i = slot;
+                byState[states[i]].clear(i);
+            }
+            batteries[i] = partial.getBatteryCapacity();
+            states[i] = (byte) partial.getState().ordinal();
+            byState[states[i]].set(i);
+            boolean wasAvailable = available.get(i);
+            boolean isAvailable = partial.getState() == State.IDLE && partial.getBatteryCapacity() >= DroneServiceImpl.LOW_BATTERY_LEVEL;
+            available.set(i, isAvailable);
+            if (i < sortedSize && wasAvailable != isAvailable) {
+                int sign = isAvailable ? 1 : -1;
+                availableDrones[models[i]].add(i, sign);
+                availableWeightLimit[models[i]].add(i, sign * weightLimits[i]);
+            }
+        }
+
+        boolean matches(DronePartial partial) {
+            Integer slot = slotBySerial.get(partial.getSerialNumber());
+            return slot != null
+                    && ids[slot] == partial.getId()
+                    && weightLimits[slot] == partial.getWeightLimit()
+                    && models[slot] == partial.getModel().ordinal()
+                    && batteries[slot] == partial.getBatteryCapacity()
+                    && states[slot] == partial.getState().ordinal();
+        }
+
+        /**
+         * @return first sorted slot with weight limit not lower than {@code weight}
+         */
+        int firstSortedAtLeast(int weight) {
+            int low = 0;
+            int high = sortedSize;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (weightLimits[middle] < weight) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+
+        /**
+         * @return order of slots by the given properties and then by id
+         */
+        Comparator<Integer> ordering(Sort sort) {
+            Comparator<Integer> ordering = Comparator.comparingInt(i -> 0);
+            for (Sort.Order order : sort) {
+                int[] values;
+                switch (order.getProperty()) {
+                    case "batteryCapacity":
+                        values = batteries;
+                        break;
+                    case "weightLimit":
+                        values = weightLimits;
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Can't sort available drones by: " + order.getProperty());
+                }
+                Comparator<Integer> byProperty = Comparator.comparingInt(i -> values[i]);
+                ordering = ordering.thenComparing(order.isAscending() ? byProperty : byProperty.reversed());
+            }
+            return ordering.thenComparingLong(i -> ids[i]);
+        }
+
+        DronePartial partial(int slot) {
+            DronePartial partial = new DronePartial();
+            partial.setId(ids[slot]);
+            partial.setSerialNumber(serials[slot]);
+            partial.setModel(Model.values()[models[slot]]);
+            partial.setWeightLimit(weightLimits[slot]);
+            partial.setBatteryCapacity(batteries[slot]);
+            partial.setState(State.values()[states[slot]]);
+            return partial;
+        }
+
+        List<DronePartial> toPartials() {
+            List<DronePartial> partials = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                partials.add(partial(i));
+            }
+            return partials;
+        }
+
+        private void grow() {
+            int capacity = Math.max(16, ids.length * 2);
+            ids = Arrays.copyOf(ids, capacity);
+            serials = Arrays.copyOf(serials, capacity);
+            weightLimits = Arrays.copyOf(weightLimits, capacity);
+            batteries = Arrays.copyOf(batteries, capacity);
+            states = Arrays.copyOf(states, capacity);
+            models = Arrays.copyOf(models, capacity);
+        }
+    }
+
+    private static final class FenwickTree {
+
+        private final long[] tree;
+
+        FenwickTree(int size) {
+            tree = new long[size + 1];
+        }
+
+        void add(int index, long delta) {
+            for (int i = index + 1; i < tree.length; i += i & -i) {
+                tree[i] += delta;
+            }
+        }
+
+        /**
+         * @return sum of values before {@code end}
+         */
+        long sum(int end) {
+            long sum = 0;
+            for (int i = end; i > 0; i -= i & -i) {
+                sum += tree[i];
+            }
+            return sum;
+        }
+    }
+}
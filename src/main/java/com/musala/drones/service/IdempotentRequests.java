@@ -0,0 +1,165 @@
+package com.musala.drones.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.musala.drones.entity.IdempotencyKey;
+import com.musala.drones.model.OutputResult;
+import com.musala.drones.repository.IdempotencyKeyRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.UncheckedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * Runs requests sent with an {@code Idempotency-Key} at most once per key within {@code drone.idempotency.ttl}.
+ * Results are kept in {@code idempotency_key} for all instances and in a bounded cache of recent keys, so a retry
+ * gets the result of the first attempt without taking locks of the drone again.
+ * <p>
+ * A key is bound to the fingerprint of the request it was first used for, reusing it for another request is an error.
+ */
+@Component
+public class IdempotentRequests {
+
+    public static final int MAX_KEY_LENGTH = 255;
+
+    private final IdempotencyKeyRepository idempotencyKeyRepository;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration ttl;
+    private final Cache<String, CompletedRequest> cache;
+    private final MeterRegistry meterRegistry;
+
+    public IdempotentRequests(IdempotencyKeyRepository idempotencyKeyRepository,
+                              ObjectMapper objectMapper,
+                              PlatformTransactionManager transactionManager,
+                              @Value("${drone.idempotency.ttl}") Duration ttl,
+                              @Value("${drone.idempotency.maxSize}") long maxSize,
+                              MeterRegistry meterRegistry) {
+        this.idempotencyKeyRepository = idempotencyKeyRepository;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.ttl = ttl;
+        this.cache = Caffeine.newBuilder()
+                .expireAfterWrite(ttl)
+                .maximumSize(maxSize)
+                .recordStats()
+                .build();
+        this.meterRegistry = meterRegistry;
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "idempotency");
+    }
+
+    /**
+     * @return operation with the SHA-256 of the JSON of the request body, e.g. {@code load 12345 5e3f...}
+     */
+    public String fingerprint(String operation, Object request) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(objectMapper.writeValueAsBytes(request));
+            StringBuilder builder = new StringBuilder(operation).append(' ');
+            for (byte b : digest) {
+                builder.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return builder.toString();
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Answers the request from the cache of recent keys, without going to the database.
+     *
+     * @return result of the first request with the key, an error if the key can't be used for this request,
+     * or null if the request has to be run by {@link #execute}
+     */
+    @Nullable
+    public OutputResult replay(String requestKey, String fingerprint) {
+        if (requestKey.length() > MAX_KEY_LENGTH) {
+            return OutputResult.error("Idempotency key can have maximum " + MAX_KEY_LENGTH + " characters");
+        }
+        CompletedRequest completed = cache.getIfPresent(requestKey);
+        return completed == null ? null : completed.resultFor(fingerprint, "cache");
+    }
+
+    /**
+     * Runs the request in one transaction with claiming its key, unless another request with the key completed
+     * meanwhile. Results are stored whether the request succeeded or not, requests which fail with an exception
+     * or a {@link OutputResult#isRetryable() retryable} error leave the key unused.
+     */
+    public OutputResult execute(String requestKey, String fingerprint, Supplier<OutputResult> request) {
+        return transactionTemplate.execute(status -> {
+            while (!idempotencyKeyRepository.claim(requestKey, fingerprint, ttl)) {
+                // the key may be deleted as expired between the two statements, then it's claimed again
+                Optional<IdempotencyKey> stored = idempotencyKeyRepository.find(requestKey);
+                if (stored.isPresent()) {
+                    CompletedRequest completed = new CompletedRequest(stored.get().getFingerprint(), readResult(stored.get().getResult()));
+                    cache.put(requestKey, completed);
+                    return completed.resultFor(fingerprint, "database");
+                }
+            }
+            OutputResult result = request.get();
+            if (result.isRetryable()) {
+                status.setRollbackOnly();
+                return result;
+            }
+            idempotencyKeyRepository.complete(requestKey, writeResult(result));
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    cache.put(requestKey, new CompletedRequest(fingerprint, result));
+                }
+            });
+            return result;
+        });
+    }
+
+    private OutputResult readResult(String json) {
+        try {
+            return objectMapper.readValue(json, OutputResult.class);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private String writeResult(OutputResult result) {
+        try {
+            return objectMapper.writeValueAsString(result);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private class CompletedRequest {
+
+        private final String fingerprint;
+        private final OutputResult result;
+
+        CompletedRequest(String fingerprint, OutputResult result) {
+            this.fingerprint = fingerprint;
+            this.result = result;
+        }
+
+        OutputResult resultFor(String requestFingerprint, String store) {
+            if (!fingerprint.equals(requestFingerprint)) {
+                meterRegistry.counter("drones.rejections", "operation", "idempotency", "reason", "key_reused").increment();
+                return OutputResult.error("Idempotency key was already used for another request");
+            }
+            meterRegistry.counter("drones.idempotency.replays", "store", store).increment();
+            return result;
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.musala.drones.service;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.TreeMap;
+
+/**
+ * Bin-packing heuristics assigning medication items to drones, both run in O(n log m) for n items and m drones.
+ */
+public final class LoadPlanner {
+
+    private LoadPlanner() {
+    }
+
+    /**
+     * @param weights    weight of every item
+     * @param capacities weight limit of every drone
+     * @return index of the drone for every item or null if some item doesn't fit into any drone
+     */
+    public static int[] plan(int[] weights, int[] capacities, PlanningMode mode) {
+        int[] items = sortedDescending(weights);
+        int[] drones = sortedDescending(capacities);
+        int[] assignment = new int[weights.length];
+        boolean planned = mode == PlanningMode.BEST_FIT
+                ? planBestFit(weights, capacities, items, drones, assignment)
+                : planFirstFit(weights, capacities, items, drones, assignment);
+        return planned ? assignment : null;
+    }
+
+    private static boolean planFirstFit(int[] weights, int[] capacities, int[] items, int[] drones, int[] assignment) {
+        int[] remaining = new int[drones.length];
+        for (int i = 0; i < drones.length; i++) {
+            remaining[i] = capacities[drones[i]];
+        }
+        MaxTree tree = new MaxTree(remaining);
+        for (int item : items) {
+            int slot = tree.findFirstAtLeast(weights[item]);
+            if (slot < 0) {
+                return false;
+            }
+            tree.update(slot, tree.get(slot) - weights[item]);
+            assignment[item] = drones[slot];
+        }
+        return true;
+    }
+
+    private static boolean planBestFit(int[] weights, int[] capacities, int[] items, int[] drones, int[] assignment) {
+        int[] remaining = capacities.clone();
+        TreeMap<Integer, Deque<Integer>> usedByRemaining = new TreeMap<>();
+        int nextUnused = 0;
+        for (int item : items) {
+            int weight = weights[item];
+            Integer room = usedByRemaining.ceilingKey(weight);
+            int drone;
+            if (room != null) {
+                Deque<Integer> sameRoom = usedByRemaining.get(room);
+                drone = sameRoom.pop();
+                if (sameRoom.isEmpty()) {
+                    usedByRemaining.remove(room);
+                }
+            } else if (nextUnused < drones.length && capacities[drones[nextUnused]] >= weight) {
+                drone = drones[nextUnused++];
+            } else {
+                return false;
+            }
+            remaining[drone] -= weight;
+            usedByRemaining.computeIfAbsent(remaining[drone], key -> new ArrayDeque<>()).push(drone);
+            assignment[item] = drone;
+        }
+        return true;
+    }
+
+    /**
+     * @return indexes of values ordered by value descending, equal values keep their order
+     */
+    private static int[] sortedDescending(int[] values) {
+        long[] packed = new long[values.length];
+        for (int i = 0; i < values.length; i++) {
+            packed[i] = ((long) (Integer.MAX_VALUE - values[i]) << 32) | i;
+        }
+        Arrays.sort(packed);
+        int[] indexes = new int[values.length];
+        for (int i = 0; i < packed.length; i++) {
+            indexes[i] = (int) packed[i];
+        }
+        return indexes;
+    }
+
+    /**
+     * Segment tree over drone rooms answering "leftmost drone with at least w room left" in O(log m).
+     */
+    private static final class MaxTree {
+
+        private final int size;
+        private final int[] tree;
+
+        MaxTree(int[] values) {
+            int size = 1;
+            while (size < values.length) {
+                size <<= 1;
+            }
+            this.size = size;
+            this.tree = new int[2 * size];
+            Arrays.fill(tree, Integer.MIN_VALUE);
+            System.arraycopy(values, 0, tree, size, values.length);
+            for (int i = size - 1; i > 0; i--) {
+                tree[i] = Math.max(tree[2 * i], tree[2 * i + 1]);
+            }
+        }
+
+        int get(int slot) {
+            return tree[size + slot];
+        }
+
+        void update(int slot, int value) {
+            int i = size + slot;
+            tree[i] = value;
+            for (i >>= 1; i > 0; i >>= 1) {
+                tree[i] = Math.max(tree[2 * i], tree[2 * i + 1]);
+            }
+        }
+
+        int findFirstAtLeast(int value) {
+            if (tree[1] < value) {
+                return -1;
+            }
+            int i = 1;
+            while (i < size) {
+                i = tree[2 * i] >= value ? 2 * i : 2 * i + 1;
+            }
+            return i - size;
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.musala.drones.service;
+
+public enum LoadingMode {
+    /**
+     * Drone row is locked with SELECT ... FOR UPDATE for the whole loading transaction.
+     */
+    PESSIMISTIC,
+    /**
+     * Drone is read without a lock and moved to LOADED with a conditional UPDATE, which is retried if the drone
+     * was changed concurrently.
+     */
+    OPTIMISTIC
+}
@@ -0,0 +1,71 @@
+package com.musala.drones.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.musala.drones.entity.MedicationCatalogEntry;
+import com.musala.drones.repository.MedicationCatalogRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Medication catalog behind a size bounded in-process cache. Catalog entries never change once added,
+ * so cached entries don't need invalidation.
+ */
+@Component
+public class MedicationCatalog {
+
+    private final MedicationCatalogRepository medicationCatalogRepository;
+    private final Cache<String, MedicationCatalogEntry> cache;
+
+    public MedicationCatalog(MedicationCatalogRepository medicationCatalogRepository,
+                             @Value("${medication.catalog.cacheSize}") long cacheSize) {
+        this.medicationCatalogRepository = medicationCatalogRepository;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .build();
+    }
+
+    /**
+     * @return catalog entries by their codes, unknown codes are missing in the result
+     */
+    public Map<String, MedicationCatalogEntry> findAll(Collection<String> codes) {
+        return cache.getAll(codes, missing -> {
+            List<String> missingCodes = new ArrayList<>();
+            missing.forEach(missingCodes::add);
+            return medicationCatalogRepository.findAllByCodes(missingCodes);
+        });
+    }
+
+    /**
+     * Adds entries with unknown codes to the catalog. Entries added in the current transaction are not cached
+     * until they are read again, so a rolled back transaction can't leave them in the cache.
+     *
+     * @return catalog entries for all codes of the given entries
+     */
+    public Map<String, MedicationCatalogEntry> register(Collection<MedicationCatalogEntry> entries) {
+        Map<String, MedicationCatalogEntry> requested = new LinkedHashMap<>();
+        entries.forEach(entry -> requested.putIfAbsent(entry.getCode(), entry));
+
+        Map<String, MedicationCatalogEntry> found = new HashMap<>(findAll(requested.keySet()));
+        if (found.size() < requested.size()) {
+            List<MedicationCatalogEntry> missing = new ArrayList<>();
+            requested.forEach((code, entry) -> {
+                if (!found.containsKey(code)) {
+                    missing.add(entry);
+                }
+            });
+            medicationCatalogRepository.insertAllIgnoringDuplicates(missing);
+            List<String> missingCodes = new ArrayList<>();
+            missing.forEach(entry -> missingCodes.add(entry.getCode()));
+            found.putAll(medicationCatalogRepository.findAllByCodes(missingCodes));
+        }
+        return found;
+    }
+}
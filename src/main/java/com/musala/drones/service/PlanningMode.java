@@ -0,0 +1,14 @@
+package com.musala.drones.service;
+
+public enum PlanningMode {
+    /**
+     * Heaviest items first, every item goes to the first drone with enough room, drones are tried from the largest
+     * weight limit down.
+     */
+    FIRST_FIT,
+    /**
+     * Heaviest items first, every item goes to the already used drone with the least room left which still fits it,
+     * the largest unused drone is taken only if no used drone fits. Packs tighter at a slightly higher cost.
+     */
+    BEST_FIT
+}
@@ -0,0 +1,141 @@
+package com.musala.drones.service;
+
+import com.musala.drones.entity.DroneTelemetry;
+import com.musala.drones.entity.DroneTransition;
+import com.musala.drones.entity.State;
+import com.musala.drones.repository.DroneRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps the latest reported telemetry per drone in memory until it is flushed to the database,
+ * so repeated reports of the same drone between flushes cost one row update.
+ */
+@Component
+@Slf4j
+public class TelemetryBuffer {
+
+    private final ConcurrentMap<String, DroneTelemetry> pending = new ConcurrentHashMap<>();
+    private final DroneRepository droneRepository;
+    private final DroneCache droneCache;
+    private final DroneTransitionEngine transitionEngine;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+
+    public TelemetryBuffer(DroneRepository droneRepository,
+                           DroneCache droneCache,
+                           DroneTransitionEngine transitionEngine,
+                           PlatformTransactionManager transactionManager,
+                           @Value("${drone.telemetry.batchSize}") int batchSize) {
+        this.droneRepository = droneRepository;
+        this.droneCache = droneCache;
+        this.transitionEngine = transitionEngine;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+    }
+
+    public void add(Collection<DroneTelemetry> reports) {
+        for (DroneTelemetry report : reports) {
+            pending.merge(report.getSerialNumber(), report, TelemetryBuffer::coalesce);
+        }
+    }
+
+    public int size() {
+        return pending.size();
+    }
+
+    /**
+     * Writes pending reports with batched updates, one transaction per batch. Reports of unknown drones are dropped,
+     * reports of a failed batch are put back unless newer ones arrived meanwhile.
+     *
+     * @return number of updated drones
+     */
+    @PreDestroy
+    public int flush() {
+        List<DroneTelemetry> reports = new ArrayList<>(pending.size());
+        for (String serial : pending.keySet()) {
+            DroneTelemetry report = pending.remove(serial);
+            if (report != null) {
+                reports.add(report);
+            }
+        }
+        // the same row order for every flush keeps concurrent flushes from deadlocking
+        reports.sort(Comparator.comparing(DroneTelemetry::getSerialNumber));
+
+        int updated = 0;
+        for (int from = 0; from < reports.size(); from += batchSize) {
+            List<DroneTelemetry> batch = reports.subList(from, Math.min(from + batchSize, reports.size()));
+            try {
+                updated += transactionTemplate.execute(status -> write(batch)).size();
+            } catch (RuntimeException e) {
+                log.warn("Can't flush telemetry of {} drones", batch.size(), e);
+                batch.forEach(report -> pending.merge(report.getSerialNumber(), report, (newer, older) -> coalesce(older, newer)));
+            }
+            droneCache.invalidate(batch.stream().map(DroneTelemetry::getSerialNumber).collect(Collectors.toList()));
+        }
+        if (!reports.isEmpty()) {
+            log.debug("Telemetry flush updated {} of {} reported drones", updated, reports.size());
+        }
+        return updated;
+    }
+
+    /**
+     * Reported states go through {@link DroneTransitionEngine}, so a drone moves only if the transition from its
+     * current state is allowed and every move is recorded. Battery levels are written first, so a drone leaving
+     * IDLE is checked against its reported level.
+     *
+     * @return serial numbers of updated drones
+     */
+    private Set<String> write(List<DroneTelemetry> batch) {
+        Set<String> updated = new HashSet<>();
+        List<DroneTelemetry> batteryLevels = batch.stream()
+                .filter(report -> report.getBatteryCapacity() != null)
+                .collect(Collectors.toList());
+        int[] counts = droneRepository.updateBatteryLevels(batteryLevels);
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] > 0) {
+                updated.add(batteryLevels.get(i).getSerialNumber());
+            }
+        }
+
+        Map<State, List<String>> serialsByState = batch.stream()
+                .filter(report -> report.getState() != null)
+                .collect(Collectors.groupingBy(DroneTelemetry::getState, () -> new EnumMap<>(State.class),
+                        Collectors.mapping(DroneTelemetry::getSerialNumber, Collectors.toList())));
+        int reportedStates = 0;
+        int moved = 0;
+        for (Map.Entry<State, List<String>> entry : serialsByState.entrySet()) {
+            List<DroneTransition> transitions = transitionEngine.apply(null, entry.getKey(), entry.getValue(), null);
+            transitions.forEach(transition -> updated.add(transition.getSerialNumber()));
+            reportedStates += entry.getValue().size();
+            moved += transitions.size();
+        }
+        if (moved < reportedStates) {
+            log.debug("Reported states of {} drones are not applied, they are current or not allowed from the current ones",
+                    reportedStates - moved);
+        }
+        return updated;
+    }
+
+    private static DroneTelemetry coalesce(DroneTelemetry older, DroneTelemetry newer) {
+        return new DroneTelemetry(newer.getSerialNumber(),
+                newer.getBatteryCapacity() != null ? newer.getBatteryCapacity() : older.getBatteryCapacity(),
+                newer.getState() != null ? newer.getState() : older.getState());
+    }
+}
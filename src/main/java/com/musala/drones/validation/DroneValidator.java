@@ -0,0 +1,98 @@
+package com.musala.drones.validation;
+
+import com.musala.drones.model.DroneDto;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import javax.validation.ConstraintValidator;
+import javax.validation.ConstraintValidatorContext;
+import java.util.List;
+
+/**
+ * Checks of {@link DroneDto} fields in the order they are declared, the messages are the ones the field
+ * constraints had before.
+ */
+public class DroneValidator implements ConstraintValidator<ValidDrone, DroneDto> {
+
+    private static final int MAX_SERIAL_NUMBER_LENGTH = 100;
+    private static final int MAX_WEIGHT_LIMIT = 500;
+    private static final int MAX_BATTERY_CAPACITY = 100;
+
+    @Getter
+    @RequiredArgsConstructor
+    enum Violation implements FieldViolation {
+        SERIAL_NUMBER_MANDATORY("serialNumber", "Serial number is mandatory"),
+        SERIAL_NUMBER_TOO_LONG("serialNumber", "Serial number can have maximum 100 characters"),
+        MODEL_MANDATORY("model", "Model is mandatory"),
+        WEIGHT_LIMIT_MANDATORY("weightLimit", "Weight limit is mandatory"),
+        WEIGHT_LIMIT_TOO_BIG("weightLimit", "Weight limit can't be more than 500 gr"),
+        WEIGHT_LIMIT_NEGATIVE("weightLimit", "Weight limit can't be negative"),
+        BATTERY_CAPACITY_MANDATORY("batteryCapacity", "Battery capacity is mandatory"),
+        BATTERY_CAPACITY_NOT_VALID("batteryCapacity", "Battery capacity should be in percentage");
+
+        private final String field;
+        private final String message;
+    }
+
+    /**
+     * @return the first violation or {@code null} if the drone is valid
+     */
+    static Violation check(DroneDto drone) {
+        if (FieldChecks.isBlank(drone.getSerialNumber())) {
+            return Violation.SERIAL_NUMBER_MANDATORY;
+        }
+        if (drone.getSerialNumber().length() > MAX_SERIAL_NUMBER_LENGTH) {
+            return Violation.SERIAL_NUMBER_TOO_LONG;
+        }
+        if (drone.getModel() == null) {
+            return Violation.MODEL_MANDATORY;
+        }
+        if (drone.getWeightLimit() == null) {
+            return Violation.WEIGHT_LIMIT_MANDATORY;
+        }
+        if (drone.getWeightLimit() > MAX_WEIGHT_LIMIT) {
+            return Violation.WEIGHT_LIMIT_TOO_BIG;
+        }
+        if (drone.getWeightLimit() < 0) {
+            return Violation.WEIGHT_LIMIT_NEGATIVE;
+        }
+        if (drone.getBatteryCapacity() == null) {
+            return Violation.BATTERY_CAPACITY_MANDATORY;
+        }
+        if (drone.getBatteryCapacity() < 0 || drone.getBatteryCapacity() > MAX_BATTERY_CAPACITY) {
+            return Violation.BATTERY_CAPACITY_NOT_VALID;
+        }
+        return null;
+    }
+
+    @Override
+    public boolean isValid(DroneDto drone, ConstraintValidatorContext context) {
+        Violation violation = drone == null ? null : check(drone);
+        if (violation != null) {
+            violation.report(context);
+        }
+        return violation == null;
+    }
+
+    /**
+     * Stops at the first item which is not valid, missing items are skipped like cascaded validation skips them.
+     */
+    public static class ListValidator implements ConstraintValidator<ValidDrone, List<DroneDto>> {
+
+        @Override
+        public boolean isValid(List<DroneDto> drones, ConstraintValidatorContext context) {
+            if (drones == null) {
+                return true;
+            }
+            for (int i = 0; i < drones.size(); i++) {
+                DroneDto drone = drones.get(i);
+                Violation violation = drone == null ? null : check(drone);
+                if (violation != null) {
+                    violation.report(context, i);
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
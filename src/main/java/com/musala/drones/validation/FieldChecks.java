@@ -0,0 +1,111 @@
+package com.musala.drones.validation;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+
+/**
+ * Hand-written equivalents of the built-in constraints the DTOs used, without reflection or matchers.
+ */
+final class FieldChecks {
+
+    private FieldChecks() {
+    }
+
+    /**
+     * Same as {@code @NotBlank}, which trims the value before checking it.
+     */
+    static boolean isBlank(String value) {
+        if (value == null) {
+            return true;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) > ' ') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Same as {@code @Pattern(regexp = "^[\\w-_]+$")}.
+     */
+    static boolean isWord(String value) {
+        if (value.isEmpty()) {
+            return false;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (!isLetterOrDigit(c) && c != '_' && c != '-') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Same as {@code @Pattern(regexp = "^[A-Z0-9_]+$")}.
+     */
+    static boolean isCode(String value) {
+        if (value.isEmpty()) {
+            return false;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (!(c >= 'A' && c <= 'Z') && !(c >= '0' && c <= '9') && c != '_') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Same as {@code @URL}, which accepts whatever {@link URL} can be constructed from. Plain {@code http(s)://host[:port]}
+     * urls with an optional path are accepted right away, anything else is left to {@link URL}.
+     */
+    static boolean isUrl(String value) {
+        if (value.isEmpty()) {
+            return true;
+        }
+        int i;
+        if (value.startsWith("http://")) {
+            i = 7;
+        } else if (value.startsWith("https://")) {
+            i = 8;
+        } else {
+            return isUrlSlow(value);
+        }
+        int hostStart = i;
+        while (i < value.length() && (isLetterOrDigit(value.charAt(i)) || value.charAt(i) == '.' || value.charAt(i) == '-')) {
+            i++;
+        }
+        if (i == hostStart) {
+            return isUrlSlow(value);
+        }
+        if (i < value.length() && value.charAt(i) == ':') {
+            int portStart = ++i;
+            while (i < value.length() && value.charAt(i) >= '0' && value.charAt(i) <= '9') {
+                i++;
+            }
+            if (i == portStart || i - portStart > 5) {
+                return isUrlSlow(value);
+            }
+        }
+        if (i == value.length() || value.charAt(i) == '/' || value.charAt(i) == '?' || value.charAt(i) == '#') {
+            return true;
+        }
+        return isUrlSlow(value);
+    }
+
+    private static boolean isUrlSlow(String value) {
+        try {
+            new URL(value);
+            return true;
+        } catch (MalformedURLException e) {
+            return false;
+        }
+    }
+
+    private static boolean isLetterOrDigit(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9');
+    }
+}
@@ -0,0 +1,28 @@
+package com.musala.drones.validation;
+
+import javax.validation.ConstraintValidatorContext;
+
+/**
+ * A failed check of one field, reported with the same property path cascaded validation would give it,
+ * e.g. {@code medications[1].name}.
+ */
+interface FieldViolation {
+
+    String getField();
+
+    String getMessage();
+
+    default void report(ConstraintValidatorContext context) {
+        context.disableDefaultConstraintViolation();
+        context.buildConstraintViolationWithTemplate(getMessage())
+                .addPropertyNode(getField())
+                .addConstraintViolation();
+    }
+
+    default void report(ConstraintValidatorContext context, int index) {
+        context.disableDefaultConstraintViolation();
+        context.buildConstraintViolationWithTemplate(getMessage())
+                .addPropertyNode(getField()).inIterable().atIndex(index)
+                .addConstraintViolation();
+    }
+}
@@ -0,0 +1,95 @@
+package com.musala.drones.validation;
+
+import com.musala.drones.model.MedicationDto;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import javax.validation.ConstraintValidator;
+import javax.validation.ConstraintValidatorContext;
+import java.util.List;
+
+/**
+ * Checks of {@link MedicationDto} fields in the order they are declared, the messages are the ones the field
+ * constraints had before. Load requests carry hundreds of items, cascading into every one of them with reflective
+ * constraints made validation the most expensive part of such a request.
+ */
+public class MedicationValidator implements ConstraintValidator<ValidMedication, MedicationDto> {
+
+    @Getter
+    @RequiredArgsConstructor
+    enum Violation implements FieldViolation {
+        NAME_MANDATORY("name", "Name is mandatory"),
+        NAME_NOT_VALID("name", "Name allows only letters, numbers, ‘-‘, ‘_’"),
+        WEIGHT_MANDATORY("weight", "Weight is mandatory"),
+        WEIGHT_NEGATIVE("weight", "Weight can't be negative"),
+        CODE_MANDATORY("code", "Code is mandatory"),
+        CODE_NOT_VALID("code", "Code allows only upper case letters, underscore and numbers"),
+        IMAGE_MANDATORY("image", "Image url is mandatory"),
+        IMAGE_NOT_VALID("image", "must be a valid URL");
+
+        private final String field;
+        private final String message;
+    }
+
+    /**
+     * @return the first violation or {@code null} if the medication is valid
+     */
+    static Violation check(MedicationDto medication) {
+        if (FieldChecks.isBlank(medication.getName())) {
+            return Violation.NAME_MANDATORY;
+        }
+        if (!FieldChecks.isWord(medication.getName())) {
+            return Violation.NAME_NOT_VALID;
+        }
+        if (medication.getWeight() == null) {
+            return Violation.WEIGHT_MANDATORY;
+        }
+        if (medication.getWeight() < 0) {
+            return Violation.WEIGHT_NEGATIVE;
+        }
+        if (FieldChecks.isBlank(medication.getCode())) {
+            return Violation.CODE_MANDATORY;
+        }
+        if (!FieldChecks.isCode(medication.getCode())) {
+            return Violation.CODE_NOT_VALID;
+        }
+        if (FieldChecks.isBlank(medication.getImage())) {
+            return Violation.IMAGE_MANDATORY;
+        }
+        if (!FieldChecks.isUrl(medication.getImage())) {
+            return Violation.IMAGE_NOT_VALID;
+        }
+        return null;
+    }
+
+    @Override
+    public boolean isValid(MedicationDto medication, ConstraintValidatorContext context) {
+        Violation violation = medication == null ? null : check(medication);
+        if (violation != null) {
+            violation.report(context);
+        }
+        return violation == null;
+    }
+
+    /**
+     * Stops at the first item which is not valid, missing items are skipped like cascaded validation skips them.
+     */
+    public static class ListValidator implements ConstraintValidator<ValidMedication, List<MedicationDto>> {
+
+        @Override
+        public boolean isValid(List<MedicationDto> medications, ConstraintValidatorContext context) {
+            if (medications == null) {
+                return true;
+            }
+            for (int i = 0; i < medications.size(); i++) {
+                MedicationDto medication = medications.get(i);
+                Violation violation = medication == null ? null : check(medication);
+                if (violation != null) {
+                    violation.report(context, i);
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
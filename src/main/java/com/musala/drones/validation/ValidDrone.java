@@ -0,0 +1,25 @@
+package com.musala.drones.validation;
+
+import javax.validation.Constraint;
+import javax.validation.Payload;
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Validates a {@code DroneDto}, or every item of a list of them, and reports the first violation only.
+ */
+@Documented
+@Constraint(validatedBy = {DroneValidator.class, DroneValidator.ListValidator.class})
+@Target({ElementType.TYPE, ElementType.FIELD})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface ValidDrone {
+
+    String message() default "Drone is not valid";
+
+    Class<?>[] groups() default {};
+
+    Class<? extends Payload>[] payload() default {};
+}
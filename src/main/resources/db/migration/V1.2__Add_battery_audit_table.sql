@@ -0,0 +1,8 @@
+-- Partitioned by day, partitions are created and dropped by the application (see BatteryAuditRepository)
+CREATE TABLE battery_audit
+(
+    drone_id            BIGINT NOT NULL,
+    battery_capacity    INT NOT NULL,
+    state               TEXT NOT NULL,
+    audited_at          TIMESTAMPTZ NOT NULL
+) PARTITION BY RANGE (audited_at);
@@ -0,0 +1,3 @@
+-- Only IDLE drones can be loaded, partial indexes keep the rest of the fleet out of availability queries
+CREATE INDEX drone_idle_battery_idx ON drone (battery_capacity) WHERE state = 'IDLE';
+CREATE INDEX drone_idle_weight_idx ON drone (weight_limit) WHERE state = 'IDLE';
@@ -0,0 +1 @@
+CREATE INDEX medication_drone_idx ON medication (drone, drone_key);
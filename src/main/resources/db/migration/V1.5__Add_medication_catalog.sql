@@ -0,0 +1,28 @@
+CREATE TABLE medication_catalog
+(
+    code    TEXT PRIMARY KEY,
+    name    TEXT NOT NULL,
+    weight  INT NOT NULL,
+    image   TEXT NOT NULL
+);
+
+-- a code stands for one medication from now on, loaded medications which disagree about it can't be merged silently
+DO $$
+DECLARE
+    conflicting TEXT;
+BEGIN
+    SELECT string_agg(code, ', ' ORDER BY code) INTO conflicting FROM (
+        SELECT code FROM medication GROUP BY code
+        HAVING count(DISTINCT name) > 1 OR count(DISTINCT weight) > 1 OR count(DISTINCT image) > 1) codes;
+    IF conflicting IS NOT NULL THEN
+        RAISE EXCEPTION 'Loaded medications with codes % differ in name, weight or image, make them match before migrating', conflicting;
+    END IF;
+END $$;
+
+INSERT INTO medication_catalog (code, name, weight, image)
+SELECT DISTINCT code, name, weight, image FROM medication;
+
+-- loaded medications keep only a reference to the catalog entry and a quantity
+ALTER TABLE medication ADD COLUMN quantity INT NOT NULL DEFAULT 1;
+ALTER TABLE medication DROP COLUMN name, DROP COLUMN weight, DROP COLUMN image;
+ALTER TABLE medication ADD FOREIGN KEY (code) REFERENCES medication_catalog (code);
@@ -0,0 +1,11 @@
+-- append-only log of drone state changes, rows are never updated
+CREATE TABLE drone_transition
+(
+    id              BIGSERIAL PRIMARY KEY,
+    drone_id        BIGINT NOT NULL,
+    from_state      TEXT NOT NULL,
+    to_state        TEXT NOT NULL,
+    transitioned_at TIMESTAMPTZ NOT NULL DEFAULT now()
+);
+
+CREATE INDEX drone_transition_drone_idx ON drone_transition (drone_id, transitioned_at);
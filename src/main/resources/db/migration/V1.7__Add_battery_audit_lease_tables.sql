@@ -0,0 +1,15 @@
+-- instances running battery audits, a node is active while its heartbeat is recent
+CREATE TABLE battery_audit_node
+(
+    node    TEXT PRIMARY KEY,
+    seen_at TIMESTAMPTZ NOT NULL
+);
+
+-- partitions of consecutive drone ids, claimed by one node per audit pass
+CREATE TABLE battery_audit_partition
+(
+    partition_id INT PRIMARY KEY,
+    pass         BIGINT NOT NULL DEFAULT -1,
+    owner        TEXT,
+    claimed_at   TIMESTAMPTZ
+);
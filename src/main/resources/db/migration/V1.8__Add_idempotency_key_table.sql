@@ -0,0 +1,10 @@
+-- results of requests sent with an Idempotency-Key header, so their retries are answered without running them again
+CREATE TABLE idempotency_key
+(
+    request_key TEXT PRIMARY KEY,
+    fingerprint TEXT        NOT NULL,
+    result      TEXT,
+    created_at  TIMESTAMPTZ NOT NULL
+);
+
+CREATE INDEX idempotency_key_created_at_idx ON idempotency_key (created_at);
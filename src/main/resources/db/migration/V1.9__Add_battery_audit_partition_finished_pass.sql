@@ -0,0 +1,4 @@
+-- pass a partition was last audited to the end by, a claim of a later pass isn't finished while it's behind the pass
+ALTER TABLE battery_audit_partition ADD COLUMN finished_pass BIGINT NOT NULL DEFAULT -1;
+
+UPDATE battery_audit_partition SET finished_pass = pass;
@@ -0,0 +1,103 @@
+package com.musala.drones.benchmark;
+
+import com.musala.drones.DronesApplication;
+import com.opentable.db.postgres.embedded.EmbeddedPostgres;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Sends a burst of loading requests for a drone whose row is locked by another transaction, so all of them wait,
+ * and measures how quickly a cached battery lookup is served meanwhile, with and without async request execution.
+ * Run with {@code ./mvnw test -Pbenchmark}. Burst size and Tomcat workers can be overridden with
+ * {@code -Dbenchmark.concurrency=256} and {@code -Dbenchmark.workers=16}.
+ */
+@Tag("benchmark")
+@Slf4j
+public class AsyncRequestBenchmark {
+
+    private static final Duration LOCK_DURATION = Duration.ofSeconds(3);
+    private static final Duration PROBE_PERIOD = Duration.ofMillis(20);
+    private static final String LOAD_BODY = "{\"medications\":[{\"name\":\"Name-1\",\"weight\":50,\"code\":\"CODE_01\",\"image\":\"http://localhost/image1\"}]}";
+
+    private final HttpClient httpClient = HttpClient.newHttpClient();
+
+    @Test
+    void asyncExecutionShouldKeepWorkersFreeWhileRequestsWaitForLocks() throws Exception {
+        int concurrency = Integer.getInteger("benchmark.concurrency", 256);
+        int workers = Integer.getInteger("benchmark.workers", 16);
+        for (boolean async : new boolean[]{false, true}) {
+            ConfigurableApplicationContext context = new SpringApplicationBuilder(DronesApplication.class)
+                    .properties("server.port=0", "spring.main.banner-mode=off", "logging.level.root=WARN",
+                            "server.tomcat.threads.max=" + workers,
+                            "web.async.enabled=" + async,
+                            "web.async.queueCapacity=" + concurrency,
+                            "drone.cache.ttl=PT1M",
+                            "audit.battery.period=P1D")
+                    .run();
+            try {
+                JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+                jdbcTemplate.update("INSERT INTO drone (serial_number, model, weight_limit, battery_capacity, state) " +
+                        "VALUES ('locked', 'Heavyweight', 500, 100, 'IDLE'), ('probe', 'Lightweight', 100, 80, 'IDLE')");
+                String baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port") + "/drone";
+                run(async, baseUrl, concurrency, context.getBean(EmbeddedPostgres.class));
+            } finally {
+                context.close();
+            }
+        }
+    }
+
+    private void run(boolean async, String baseUrl, int concurrency, EmbeddedPostgres postgres) throws Exception {
+        HttpRequest loadRequest = HttpRequest.newBuilder(URI.create(baseUrl + "/locked/load"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(LOAD_BODY))
+                .build();
+        HttpRequest probeRequest = HttpRequest.newBuilder(URI.create(baseUrl + "/probe/battery")).build();
+        httpClient.send(probeRequest, HttpResponse.BodyHandlers.discarding());
+
+        List<Long> probeLatencies = new ArrayList<>();
+        List<CompletableFuture<HttpResponse<Void>>> burst = new ArrayList<>();
+        // outside of the application's pool, like a long transaction of another instance
+        try (Connection connection = postgres.getPostgresDatabase().getConnection(); Statement statement = connection.createStatement()) {
+            connection.setAutoCommit(false);
+            statement.execute("SELECT * FROM drone WHERE serial_number = 'locked' FOR UPDATE");
+            for (int i = 0; i < concurrency; i++) {
+                burst.add(httpClient.sendAsync(loadRequest, HttpResponse.BodyHandlers.discarding()));
+            }
+            long deadline = System.nanoTime() + LOCK_DURATION.toNanos();
+            while (System.nanoTime() < deadline) {
+                long start = System.nanoTime();
+                httpClient.send(probeRequest, HttpResponse.BodyHandlers.discarding());
+                probeLatencies.add((System.nanoTime() - start) / 1_000);
+                Thread.sleep(PROBE_PERIOD.toMillis());
+            }
+            connection.commit();
+        }
+        long released = System.nanoTime();
+        CompletableFuture.allOf(burst.toArray(new CompletableFuture[0])).join();
+        long drained = (System.nanoTime() - released) / 1_000_000;
+
+        Collections.sort(probeLatencies);
+        log.warn("Burst of {} loads waiting for a lock, async={}: cached lookups served={}, p50={} us, p99={} us, "
+                        + "burst drained {} ms after release",
+                concurrency, async, probeLatencies.size(),
+                probeLatencies.get(probeLatencies.size() / 2),
+                probeLatencies.get(probeLatencies.size() * 99 / 100),
+                drained);
+    }
+}
@@ -0,0 +1,79 @@
+package com.musala.drones.benchmark;
+
+import com.musala.drones.DBConfiguration;
+import com.musala.drones.repository.AuditLeaseRepository;
+import com.musala.drones.repository.BatteryAuditRepository;
+import com.musala.drones.repository.DroneRepository;
+import com.musala.drones.scheduler.AuditMode;
+import com.musala.drones.scheduler.BatteryAuditTracker;
+import com.musala.drones.scheduler.BatteryLevelScheduler;
+import com.musala.drones.service.DroneCache;
+import com.musala.drones.service.DroneEventBroadcaster;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.data.jdbc.DataJdbcTest;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.task.SyncTaskExecutor;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.Duration;
+import java.util.Arrays;
+
+/**
+ * Measures one full battery audit pass for growing fleets, run with {@code ./mvnw test -Pbenchmark}.
+ * Fleet sizes and batch size can be overridden with {@code -Dbenchmark.fleetSizes=10000,100000}
+ * and {@code -Dbenchmark.batchSize=1000}.
+ */
+@Tag("benchmark")
+@Slf4j
+@DataJdbcTest(properties = "logging.level.com.musala.drones.scheduler=WARN")
+@Import(DBConfiguration.class)
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+public class BatteryAuditBenchmark {
+
+    private static final int PASSES = 3;
+
+    @Autowired
+    DroneRepository droneRepository;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Test
+    void auditPassShouldGrowLinearlyWithFleetSize() {
+        int batchSize = Integer.getInteger("benchmark.batchSize", 1000);
+        int[] fleetSizes = Arrays.stream(System.getProperty("benchmark.fleetSizes", "10000,100000,1000000").split(","))
+                .mapToInt(Integer::parseInt)
+                .toArray();
+        // the test transaction isn't visible to other connections, so partitions are audited on the calling thread
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        DroneEventBroadcaster eventBroadcaster = new DroneEventBroadcaster(droneRepository,
+                new DroneCache(droneRepository, Duration.ofSeconds(5), 100, meterRegistry), new SyncTaskExecutor(), 100, meterRegistry);
+        BatteryLevelScheduler scheduler = new BatteryLevelScheduler(droneRepository, new BatteryAuditRepository(jdbcTemplate),
+                new AuditLeaseRepository(jdbcTemplate), new BatteryAuditTracker(1, new int[]{25}), eventBroadcaster,
+                new SyncTaskExecutor(), batchSize, AuditMode.FULL, 10_000, 1, Duration.ofDays(1), Duration.ofDays(1), "benchmark", meterRegistry);
+        long pass = 0;
+
+        int seeded = 0;
+        for (int fleetSize : fleetSizes) {
+            jdbcTemplate.update("INSERT INTO drone (serial_number, model, weight_limit, battery_capacity, state) " +
+                    "SELECT 'bench-' || g, 'Lightweight', 500, g % 101, 'IDLE' FROM generate_series(?, ?) g", seeded + 1, fleetSize);
+            jdbcTemplate.execute("ANALYZE drone");
+            seeded = fleetSize;
+
+            scheduler.auditPass(++pass);
+            long best = Long.MAX_VALUE;
+            for (int i = 0; i < PASSES; i++) {
+                long start = System.nanoTime();
+                scheduler.auditPass(++pass);
+                best = Math.min(best, System.nanoTime() - start);
+            }
+            log.warn("Audit pass: fleet={}, batch={}, time={} ms, per drone={} ns",
+                    fleetSize, batchSize, best / 1_000_000, best / fleetSize);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.musala.drones.benchmark;
+
+import com.musala.drones.DronesApplication;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Exports a seeded fleet, where every other drone carries medications, and measures time to the first byte, total time
+ * and the peak of used heap while the export runs, run with {@code ./mvnw test -Pbenchmark}.
+ * Fleet size can be overridden with {@code -Dbenchmark.fleetSize=100000}.
+ */
+@Tag("benchmark")
+@Slf4j
+public class FleetExportBenchmark {
+
+    private final HttpClient httpClient = HttpClient.newHttpClient();
+
+    @Test
+    void exportShouldStartRightAwayAndKeepHeapFlat() throws Exception {
+        int fleetSize = Integer.getInteger("benchmark.fleetSize", 1_000_000);
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(DronesApplication.class)
+                .properties("server.port=0", "spring.main.banner-mode=off", "logging.level.root=WARN",
+                        "audit.battery.period=P1D")
+                .run();
+        try {
+            JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+            jdbcTemplate.update("INSERT INTO medication_catalog (code, name, weight, image) " +
+                    "SELECT 'CODE_' || g, 'Name-' || g, 10, 'http://localhost/image' || g FROM generate_series(1, 10) g");
+            jdbcTemplate.update("INSERT INTO drone (serial_number, model, weight_limit, battery_capacity, state) " +
+                    "SELECT 'bench-' || g, 'Heavyweight', 500, g % 101, CASE WHEN g % 2 = 0 THEN 'LOADED' ELSE 'IDLE' END " +
+                    "FROM generate_series(1, ?) g", fleetSize);
+            jdbcTemplate.update("INSERT INTO medication (drone, drone_key, code, quantity) " +
+                    "SELECT d.id, k, 'CODE_' || (d.id % 10 + 1), k FROM drone d, generate_series(0, 2) k WHERE d.state = 'LOADED'");
+            jdbcTemplate.execute("ANALYZE");
+            String baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port") + "/drone";
+
+            for (String encoding : new String[]{"identity", "gzip"}) {
+                export(baseUrl, encoding, fleetSize);
+            }
+        } finally {
+            context.close();
+        }
+    }
+
+    private void export(String baseUrl, String encoding, int fleetSize) throws Exception {
+        System.gc();
+        Runtime runtime = Runtime.getRuntime();
+        long heapBefore = runtime.totalMemory() - runtime.freeMemory();
+        AtomicLong peakHeap = new AtomicLong(heapBefore);
+        AtomicBoolean running = new AtomicBoolean(true);
+        Thread sampler = new Thread(() -> {
+            while (running.get()) {
+                peakHeap.accumulateAndGet(runtime.totalMemory() - runtime.freeMemory(), Math::max);
+                Thread.onSpinWait();
+            }
+        });
+        sampler.start();
+
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/export"))
+                .header("Accept-Encoding", encoding)
+                .build();
+        long start = System.nanoTime();
+        long firstByte;
+        long bytes = 0;
+        try (InputStream body = httpClient.send(request, HttpResponse.BodyHandlers.ofInputStream()).body()) {
+            byte[] buffer = new byte[64 * 1024];
+            int read = body.read(buffer);
+            firstByte = System.nanoTime() - start;
+            while (read >= 0) {
+                bytes += read;
+                read = body.read(buffer);
+            }
+        }
+        long total = System.nanoTime() - start;
+        running.set(false);
+        sampler.join();
+
+        log.warn("Export of {} drones, encoding={}: first byte={} ms, total={} ms, {} MB, heap growth peak={} MB",
+                fleetSize, encoding, firstByte / 1_000_000, total / 1_000_000, bytes / (1024 * 1024),
+                (peakHeap.get() - heapBefore) / (1024 * 1024));
+    }
+}
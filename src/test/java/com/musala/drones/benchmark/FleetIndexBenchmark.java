@@ -0,0 +1,73 @@
+package com.musala.drones.benchmark;
+
+import com.musala.drones.DBConfiguration;
+import com.musala.drones.entity.Model;
+import com.musala.drones.repository.DroneRepository;
+import com.musala.drones.service.DroneCache;
+import com.musala.drones.service.FleetIndex;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.data.jdbc.DataJdbcTest;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.Duration;
+
+/**
+ * Compares "which drones can take X grams right now" answered by the fleet index and by the database.
+ * Fleet size can be overridden with {@code -Dbenchmark.drones=100000}.
+ */
+@Tag("benchmark")
+@Slf4j
+@DataJdbcTest
+@Import(DBConfiguration.class)
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+public class FleetIndexBenchmark {
+
+    private static final int QUERIES = 10_000;
+
+    @Autowired
+    DroneRepository droneRepository;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Test
+    void indexShouldAnswerAvailabilityWithoutDatabase() {
+        int drones = Integer.getInteger("benchmark.drones", 100_000);
+        jdbcTemplate.update("INSERT INTO drone (serial_number, model, weight_limit, battery_capacity, state) " +
+                "SELECT 'index-' || g, (ARRAY['Lightweight', 'Middleweight', 'Cruiserweight', 'Heavyweight'])[g % 4 + 1], " +
+                "(g * 37) % 501, (g * 13) % 101, (ARRAY['IDLE', 'IDLE', 'LOADED', 'DELIVERING'])[g % 4 + 1] FROM generate_series(1, ?) g", drones);
+        jdbcTemplate.execute("ANALYZE drone");
+        FleetIndex fleetIndex = new FleetIndex(droneRepository,
+                new DroneCache(droneRepository, Duration.ofSeconds(5), 1000, new SimpleMeterRegistry()), Runnable::run, true, 10_000);
+        long start = System.nanoTime();
+        fleetIndex.rebuild();
+        log.warn("Fleet index rebuild: drones={}, time={} ms", drones, (System.nanoTime() - start) / 1_000_000);
+
+        int[] dronesByModel = new int[Model.values().length];
+        long[] weightLimitByModel = new long[Model.values().length];
+        long checksum = 0;
+        for (int i = 0; i < QUERIES; i++) {
+            checksum += fleetIndex.countAvailable(i % 501, dronesByModel, weightLimitByModel);
+        }
+        start = System.nanoTime();
+        for (int i = 0; i < QUERIES; i++) {
+            checksum += fleetIndex.countAvailable(i % 501, dronesByModel, weightLimitByModel);
+        }
+        long indexNanos = (System.nanoTime() - start) / QUERIES;
+
+        int databaseQueries = QUERIES / 100;
+        start = System.nanoTime();
+        for (int i = 0; i < databaseQueries; i++) {
+            checksum += droneRepository.countAvailableByModel(25, i % 501).size();
+        }
+        long databaseNanos = (System.nanoTime() - start) / databaseQueries;
+        log.warn("Availability query: drones={}, index={} us, database={} us, checksum={}",
+                drones, indexNanos / 1000, databaseNanos / 1000, checksum);
+    }
+}
@@ -0,0 +1,109 @@
+package com.musala.drones.benchmark;
+
+import com.musala.drones.DBConfiguration;
+import com.musala.drones.model.MedicationDto;
+import com.musala.drones.model.OutputResult;
+import com.musala.drones.model.Status;
+import com.musala.drones.repository.DroneRepository;
+import com.musala.drones.service.DroneService;
+import com.musala.drones.service.DroneServiceFactory;
+import com.musala.drones.service.LoadPlanner;
+import com.musala.drones.service.LoadingMode;
+import com.musala.drones.service.PlanningMode;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.data.jdbc.DataJdbcTest;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+/**
+ * Plans an order over a fleet in both planning modes, first the planner alone and then the whole request
+ * including locking drones and storing loads. Sizes can be overridden with {@code -Dbenchmark.items=10000}
+ * and {@code -Dbenchmark.drones=10000}.
+ */
+@Tag("benchmark")
+@Slf4j
+@DataJdbcTest
+@Import(DBConfiguration.class)
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+public class LoadPlanningBenchmark {
+
+    private static final int PASSES = 5;
+
+    @Autowired
+    DroneRepository droneRepository;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @ParameterizedTest
+    @EnumSource(PlanningMode.class)
+    void planOrderOverFleet(PlanningMode mode) {
+        int itemCount = Integer.getInteger("benchmark.items", 10_000);
+        int droneCount = Integer.getInteger("benchmark.drones", 10_000);
+        Random random = new Random(42);
+        int[] weights = random.ints(itemCount, 1, 300).toArray();
+        int[] capacities = random.ints(droneCount, 100, 501).toArray();
+
+        long best = Long.MAX_VALUE;
+        int[] assignment = null;
+        for (int i = 0; i < PASSES; i++) {
+            long start = System.nanoTime();
+            assignment = LoadPlanner.plan(weights, capacities, mode);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        assertNotNull(assignment);
+        long used = Arrays.stream(assignment).distinct().count();
+        log.warn("Planner: mode={}, items={}, drones={}, time={} ms, drones used={}, lower bound={}",
+                mode, itemCount, droneCount, best / 1_000_000, used, lowerBound(weights, capacities));
+
+        jdbcTemplate.update("INSERT INTO drone (serial_number, model, weight_limit, battery_capacity, state) " +
+                "SELECT 'plan-' || g, 'Heavyweight', 100 + g % 401, 100, 'IDLE' FROM generate_series(1, ?) g", droneCount);
+        List<MedicationDto> order = IntStream.range(0, itemCount)
+                .mapToObj(i -> new MedicationDto("Name-" + (i % 300), 1 + i % 300, "CODE_" + (i % 300), "http://localhost/image" + (i % 300)))
+                .collect(Collectors.toList());
+        DroneService droneService = droneService();
+        long start = System.nanoTime();
+        OutputResult outputResult = droneService.planLoading(order, mode);
+        long elapsed = System.nanoTime() - start;
+        assertEquals(Status.SUCCESS, outputResult.getStatus());
+        log.warn("Plan request: mode={}, items={}, drones={}, time={} ms, drones loaded={}",
+                mode, itemCount, droneCount, elapsed / 1_000_000, ((List<?>) outputResult.getData()).size());
+    }
+
+    /**
+     * Fewest drones which could carry the whole order if items could be split.
+     */
+    private static int lowerBound(int[] weights, int[] capacities) {
+        long total = Arrays.stream(weights).asLongStream().sum();
+        int[] sorted = capacities.clone();
+        Arrays.sort(sorted);
+        int drones = 0;
+        for (int i = sorted.length - 1; i >= 0 && total > 0; i--) {
+            total -= sorted[i];
+            drones++;
+        }
+        return drones;
+    }
+
+    private DroneService droneService() {
+        return new DroneServiceFactory(droneRepository, jdbcTemplate, transactionManager).create(droneRepository, LoadingMode.PESSIMISTIC);
+    }
+}
@@ -0,0 +1,112 @@
+package com.musala.drones.benchmark;
+
+import com.musala.drones.DBConfiguration;
+import com.musala.drones.entity.Drone;
+import com.musala.drones.entity.Model;
+import com.musala.drones.entity.State;
+import com.musala.drones.model.MedicationDto;
+import com.musala.drones.model.OutputResult;
+import com.musala.drones.model.Status;
+import com.musala.drones.repository.DroneRepository;
+import com.musala.drones.service.DroneService;
+import com.musala.drones.service.DroneServiceFactory;
+import com.musala.drones.service.LoadingMode;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.data.jdbc.DataJdbcTest;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Many dispatchers loading a small set of popular drones at once, in both loading modes.
+ * A successfully loaded drone is put back to IDLE right away, so it can be loaded again.
+ * Can be tuned with {@code -Dbenchmark.threads=16}, {@code -Dbenchmark.drones=8} and {@code -Dbenchmark.seconds=10}.
+ */
+@Tag("benchmark")
+@Slf4j
+@DataJdbcTest
+@Import(DBConfiguration.class)
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class LoadingContentionBenchmark {
+
+    @Autowired
+    DroneRepository droneRepository;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    void cleanUp() {
+        jdbcTemplate.update("DELETE FROM drone WHERE serial_number LIKE 'contention-%'");
+    }
+
+    @ParameterizedTest
+    @EnumSource(LoadingMode.class)
+    void loadPopularDrones(LoadingMode mode) throws Exception {
+        int threads = Integer.getInteger("benchmark.threads", 16);
+        int droneCount = Integer.getInteger("benchmark.drones", 8);
+        long seconds = Long.getLong("benchmark.seconds", 10);
+
+        List<String> serials = IntStream.range(0, droneCount).mapToObj(i -> "contention-" + i).collect(Collectors.toList());
+        droneRepository.saveAll(serials.stream()
+                .map(serial -> new Drone(serial, Model.Heavyweight, 500, 100, State.IDLE))
+                .collect(Collectors.toList()));
+        DroneService droneService = new DroneServiceFactory(droneRepository, jdbcTemplate, transactionManager).create(droneRepository, mode);
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        List<MedicationDto> medications = List.of(new MedicationDto("Name-1", 50, "CODE_01", "http://localhost/image1"));
+
+        AtomicLong attempts = new AtomicLong();
+        AtomicLong loaded = new AtomicLong();
+        AtomicLong latencyNanos = new AtomicLong();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> workers = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            workers.add(executor.submit(() -> {
+                while (System.nanoTime() < deadline) {
+                    String serial = serials.get(ThreadLocalRandom.current().nextInt(serials.size()));
+                    long start = System.nanoTime();
+                    OutputResult result = transaction.execute(status -> droneService.loadDrone(serial, medications));
+                    latencyNanos.addAndGet(System.nanoTime() - start);
+                    attempts.incrementAndGet();
+                    if (result != null && result.getStatus() == Status.SUCCESS) {
+                        loaded.incrementAndGet();
+                        jdbcTemplate.update("UPDATE drone SET state = 'IDLE' WHERE serial_number = ?", serial);
+                    }
+                }
+            }));
+        }
+        for (Future<?> worker : workers) {
+            worker.get();
+        }
+        executor.shutdown();
+
+        log.warn("Loading contention: mode={}, threads={}, drones={}, attempts/s={}, loads/s={}, avg latency={} us",
+                mode, threads, droneCount, attempts.get() / seconds, loaded.get() / seconds,
+                latencyNanos.get() / Math.max(1, attempts.get()) / 1000);
+    }
+}
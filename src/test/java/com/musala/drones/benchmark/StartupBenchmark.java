@@ -0,0 +1,55 @@
+package com.musala.drones.benchmark;
+
+import com.musala.drones.DronesApplication;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.nio.file.Path;
+
+/**
+ * Measures startup of the whole application until it's ready to serve requests, run with {@code ./mvnw test -Pbenchmark}.
+ * The first start warms up the JVM and creates the data directory, so later starts differ only by configuration.
+ * Number of starts per configuration can be overridden with {@code -Dbenchmark.starts=5}.
+ */
+@Tag("benchmark")
+@Slf4j
+public class StartupBenchmark {
+
+    @TempDir
+    Path dataDirectory;
+
+    @Test
+    void reusedDataDirectoryAndLazyInitializationShouldStartFaster() {
+        int starts = Integer.getInteger("benchmark.starts", 3);
+        start("db.embedded.dataDirectory=" + dataDirectory);
+
+        long fresh = bestStart(starts, "db.embedded.dataDirectory=");
+        long reused = bestStart(starts, "db.embedded.dataDirectory=" + dataDirectory);
+        long reusedLazy = bestStart(starts, "db.embedded.dataDirectory=" + dataDirectory, "spring.main.lazy-initialization=true");
+        log.warn("Startup: fresh database={} ms, reused data directory={} ms, reused data directory and lazy beans={} ms",
+                fresh, reused, reusedLazy);
+    }
+
+    private long bestStart(int starts, String... properties) {
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < starts; i++) {
+            best = Math.min(best, start(properties));
+        }
+        return best;
+    }
+
+    private long start(String... properties) {
+        long start = System.nanoTime();
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(DronesApplication.class)
+                .properties("server.port=0", "spring.main.banner-mode=off", "logging.level.root=WARN")
+                .properties(properties)
+                .run();
+        long elapsed = (System.nanoTime() - start) / 1_000_000;
+        context.close();
+        return elapsed;
+    }
+}
@@ -0,0 +1,78 @@
+package com.musala.drones.benchmark;
+
+import com.musala.drones.DBConfiguration;
+import com.musala.drones.entity.DroneTelemetry;
+import com.musala.drones.entity.State;
+import com.musala.drones.repository.DroneRepository;
+import com.musala.drones.service.DroneCache;
+import com.musala.drones.service.DroneTransitionEngine;
+import com.musala.drones.service.TelemetryBuffer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.data.jdbc.DataJdbcTest;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Measures telemetry ingest throughput: reports from a fleet are buffered and flushed once per round,
+ * run with {@code ./mvnw test -Pbenchmark}. Fleet size, reports per round and batch size can be overridden with
+ * {@code -Dbenchmark.drones=10000}, {@code -Dbenchmark.reports=100000} and {@code -Dbenchmark.batchSize=500}.
+ */
+@Tag("benchmark")
+@Slf4j
+@DataJdbcTest
+@Import(DBConfiguration.class)
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+public class TelemetryIngestBenchmark {
+
+    private static final int ROUNDS = 5;
+
+    @Autowired
+    DroneRepository droneRepository;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Test
+    void ingestShouldSustainTensOfThousandsOfReportsPerSecond() {
+        int drones = Integer.getInteger("benchmark.drones", 10_000);
+        int reportsPerRound = Integer.getInteger("benchmark.reports", 100_000);
+        int batchSize = Integer.getInteger("benchmark.batchSize", 500);
+        jdbcTemplate.update("INSERT INTO drone (serial_number, model, weight_limit, battery_capacity, state) " +
+                "SELECT 'telemetry-' || g, 'Lightweight', 500, 100, 'IDLE' FROM generate_series(1, ?) g", drones);
+        DroneCache droneCache = new DroneCache(droneRepository, Duration.ofSeconds(5), 1000, new SimpleMeterRegistry());
+        TelemetryBuffer buffer = new TelemetryBuffer(droneRepository, droneCache,
+                new DroneTransitionEngine(droneRepository, droneCache), transactionManager, batchSize);
+
+        for (int round = 0; round < ROUNDS; round++) {
+            List<DroneTelemetry> reports = new ArrayList<>(reportsPerRound);
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            for (int i = 0; i < reportsPerRound; i++) {
+                reports.add(new DroneTelemetry("telemetry-" + (random.nextInt(drones) + 1), random.nextInt(101),
+                        random.nextBoolean() ? State.IDLE : null));
+            }
+
+            long start = System.nanoTime();
+            buffer.add(reports);
+            long buffered = System.nanoTime();
+            int updated = buffer.flush();
+            long flushed = System.nanoTime();
+            log.warn("Telemetry round: reports={}, drones updated={}, buffer={} ms, flush={} ms, reports per second={}",
+                    reportsPerRound, updated, (buffered - start) / 1_000_000, (flushed - buffered) / 1_000_000,
+                    reportsPerRound * 1_000_000_000L / (flushed - start));
+        }
+    }
+}
@@ -2,32 +2,72 @@ package com.musala.drones.controller;
 
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import com.musala.drones.entity.Model;
+import com.musala.drones.entity.State;
+import com.musala.drones.model.BatteryAuditDto;
+import com.musala.drones.model.CapacityDto;
 import com.musala.drones.model.DroneDto;
+import com.musala.drones.model.DroneEventDto;
+import com.musala.drones.model.DroneEventType;
 import com.musala.drones.model.MedicationDto;
 import com.musala.drones.model.OutputResult;
+import com.musala.drones.model.PlannedLoadDto;
+import com.musala.drones.model.RegistrationResult;
+import com.musala.drones.model.TelemetryDto;
+import com.musala.drones.model.TelemetryResult;
+import com.musala.drones.model.TransitionDto;
+import com.musala.drones.model.TransitionRequest;
+import com.musala.drones.service.DroneEventBroadcaster;
 import com.musala.drones.service.DroneService;
+import com.musala.drones.service.FleetExporter;
+import com.musala.drones.service.IdempotentRequests;
+import com.musala.drones.service.PlanningMode;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.ResultActions;
 
+import java.io.ByteArrayInputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.Instant;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.zip.GZIPInputStream;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @WebMvcTest(DroneController.class)
@@ -39,7 +79,28 @@ public class DroneControllerTest {
     @MockBean
     DroneService droneService;
 
-    ObjectMapper objectMapper = new ObjectMapper().setSerializationInclusion(JsonInclude.Include.NON_NULL);
+    @MockBean
+    DroneEventBroadcaster eventBroadcaster;
+
+    @MockBean
+    FleetExporter fleetExporter;
+
+    @MockBean
+    IdempotentRequests idempotentRequests;
+
+    ObjectMapper objectMapper = new ObjectMapper()
+            .setSerializationInclusion(JsonInclude.Include.NON_NULL)
+            .registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+    /**
+     * Performs the request and, if its handler completes asynchronously, the dispatch of its result.
+     */
+    ResultActions perform(RequestBuilder request) throws Exception {
+        ResultActions actions = mockMvc.perform(request);
+        MvcResult result = actions.andReturn();
+        return result.getRequest().isAsyncStarted() ? mockMvc.perform(asyncDispatch(result)) : actions;
+    }
 
     @Nested
     class RegisterDrone {
@@ -52,7 +113,7 @@ public class DroneControllerTest {
 
             String content = Files.readString(Path.of("src/test/resources/data/drone.json"));
             String json = objectMapper.writeValueAsString(outputResult);
-            mockMvc.perform(
+            perform(
                             put("/drone/register")
                                     .contentType(MediaType.APPLICATION_JSON)
                                     .content(content))
@@ -68,7 +129,7 @@ public class DroneControllerTest {
             String content = Files.readString(Path.of("src/test/resources/data/drone.json"));
             OutputResult error = OutputResult.error("Entity with such key already exists : Constraint violation exception");
             String json = objectMapper.writeValueAsString(error);
-            mockMvc.perform(
+            perform(
                             put("/drone/register")
                                     .contentType(MediaType.APPLICATION_JSON)
                                     .content(content))
@@ -83,7 +144,7 @@ public class DroneControllerTest {
 
             OutputResult error = OutputResult.error("Request is not valid: serialNumber: Serial number is mandatory; ");
             String json = objectMapper.writeValueAsString(error);
-            mockMvc.perform(
+            perform(
                             put("/drone/register")
                                     .contentType(MediaType.APPLICATION_JSON)
                                     .content(content))
@@ -98,7 +159,7 @@ public class DroneControllerTest {
 
             OutputResult error = OutputResult.error("Request is not valid: model: Model is mandatory; ");
             String json = objectMapper.writeValueAsString(error);
-            mockMvc.perform(
+            perform(
                             put("/drone/register")
                                     .contentType(MediaType.APPLICATION_JSON)
                                     .content(content))
@@ -113,7 +174,7 @@ public class DroneControllerTest {
 
             OutputResult error = OutputResult.error("Request is not valid: weightLimit: Weight limit can't be more than 500 gr; ");
             String json = objectMapper.writeValueAsString(error);
-            mockMvc.perform(
+            perform(
                             put("/drone/register")
                                     .contentType(MediaType.APPLICATION_JSON)
                                     .content(content))
@@ -128,7 +189,7 @@ public class DroneControllerTest {
 
             OutputResult error = OutputResult.error("Request is not valid: batteryCapacity: Battery capacity should be in percentage; ");
             String json = objectMapper.writeValueAsString(error);
-            mockMvc.perform(
+            perform(
                             put("/drone/register")
                                     .contentType(MediaType.APPLICATION_JSON)
                                     .content(content))
@@ -138,9 +199,153 @@ public class DroneControllerTest {
         }
     }
 
+    @Nested
+    class ReportTelemetry {
+
+        @Test
+        void shouldReportTelemetry() throws Exception {
+            List<TelemetryDto> reports = List.of(
+                    new TelemetryDto("12345", 50, null),
+                    new TelemetryDto("12346", null, State.RETURNING)
+            );
+            OutputResult outputResult = OutputResult.success(new TelemetryResult(2, 0));
+            when(droneService.reportTelemetry(eq(reports))).thenReturn(outputResult);
+
+            String content = "{\"reports\":" + objectMapper.writeValueAsString(reports) + "}";
+            String json = objectMapper.writeValueAsString(outputResult);
+            perform(
+                            post("/drone/telemetry")
+                                    .contentType(MediaType.APPLICATION_JSON)
+                                    .content(content))
+                    .andDo(print())
+                    .andExpect(status().isOk())
+                    .andExpect(content().json(json));
+        }
+
+        @Test
+        void shouldReturnBadRequestIfAnyReportIsNotValid() throws Exception {
+            String content = "{\"reports\":[{\"serialNumber\":\"12345\",\"batteryCapacity\":150}]}";
+
+            OutputResult error = OutputResult.error("Request is not valid: reports[0].batteryCapacity: Battery capacity should be in percentage; ");
+            String json = objectMapper.writeValueAsString(error);
+            perform(
+                            post("/drone/telemetry")
+                                    .contentType(MediaType.APPLICATION_JSON)
+                                    .content(content))
+                    .andDo(print())
+                    .andExpect(status().isBadRequest())
+                    .andExpect(content().json(json));
+        }
+
+        @Test
+        void shouldSkipNotValidLinesOfTelemetryStream() throws Exception {
+            String content = "{\"serialNumber\":\"12345\",\"batteryCapacity\":50}\n" +
+                    "{\"serialNumber\":\"12346\",\"batteryCapacity\":150}\n" +
+                    "\n" +
+                    "not a json\n" +
+                    "{\"serialNumber\":\"12347\",\"state\":\"IDLE\"}\n";
+            List<TelemetryDto> accepted = List.of(
+                    new TelemetryDto("12345", 50, null),
+                    new TelemetryDto("12347", null, State.IDLE)
+            );
+            when(droneService.reportTelemetry(eq(accepted))).thenReturn(OutputResult.success(new TelemetryResult(2, 0)));
+
+            String json = objectMapper.writeValueAsString(OutputResult.success(new TelemetryResult(2, 2)));
+            perform(
+                            post("/drone/telemetry")
+                                    .contentType(MediaType.APPLICATION_NDJSON)
+                                    .content(content))
+                    .andDo(print())
+                    .andExpect(status().isOk())
+                    .andExpect(content().json(json));
+            verify(droneService).reportTelemetry(eq(accepted));
+        }
+    }
+
+    @Nested
+    class RegisterDrones {
+
+        @Test
+        void shouldRegisterDrones() throws Exception {
+            List<DroneDto> drones = List.of(
+                    new DroneDto("12345", Model.Lightweight, 200, 55),
+                    new DroneDto("12346", Model.Heavyweight, 500, 90)
+            );
+            OutputResult outputResult = OutputResult.success(List.of(
+                    RegistrationResult.registered("12345"),
+                    RegistrationResult.failed("12346", "Drone with such serial number already exists")
+            ));
+            when(droneService.registerDrones(eq(drones))).thenReturn(outputResult);
+
+            String content = Files.readString(Path.of("src/test/resources/data/drones_list.json"));
+            String json = objectMapper.writeValueAsString(outputResult);
+            perform(
+                            put("/drone/register/batch")
+                                    .contentType(MediaType.APPLICATION_JSON)
+                                    .content(content))
+                    .andDo(print())
+                    .andExpect(status().isOk())
+                    .andExpect(content().json(json));
+        }
+
+        @Test
+        void shouldReturnBadRequestIfAnyDroneIsNotValid() throws Exception {
+            String content = Files.readString(Path.of("src/test/resources/data/drones_list_weight_not_valid.json"));
+
+            OutputResult error = OutputResult.error("Request is not valid: drones[1].weightLimit: Weight limit can't be more than 500 gr; ");
+            String json = objectMapper.writeValueAsString(error);
+            perform(
+                            put("/drone/register/batch")
+                                    .contentType(MediaType.APPLICATION_JSON)
+                                    .content(content))
+                    .andDo(print())
+                    .andExpect(status().isBadRequest())
+                    .andExpect(content().json(json));
+        }
+    }
+
     @Nested
     class LoadDrone {
 
+        @Test
+        void shouldLoadDroneWithIdempotencyKey() throws Exception {
+            OutputResult outputResult = OutputResult.success(new DroneDto("12345", Model.Lightweight, 200, 55));
+            when(droneService.loadDrone(eq("12345"), any())).thenReturn(outputResult);
+            when(idempotentRequests.fingerprint(eq("load 12345"), any())).thenReturn("fingerprint");
+            when(idempotentRequests.execute(eq("key-1"), eq("fingerprint"), any()))
+                    .thenAnswer(invocation -> invocation.<Supplier<OutputResult>>getArgument(2).get());
+
+            String content = Files.readString(Path.of("src/test/resources/data/medications_list.json"));
+            perform(
+                            post("/drone/12345/load")
+                                    .header("Idempotency-Key", "key-1")
+                                    .contentType(MediaType.APPLICATION_JSON)
+                                    .content(content))
+                    .andDo(print())
+                    .andExpect(status().isOk())
+                    .andExpect(content().json(objectMapper.writeValueAsString(outputResult)));
+            verify(droneService).loadDrone(eq("12345"), any());
+        }
+
+        @Test
+        void shouldReplayLoadWithCompletedIdempotencyKey() throws Exception {
+            OutputResult outputResult = OutputResult.success(new DroneDto("12345", Model.Lightweight, 200, 55));
+            when(idempotentRequests.fingerprint(eq("load 12345"), any())).thenReturn("fingerprint");
+            when(idempotentRequests.replay("key-1", "fingerprint")).thenReturn(outputResult);
+
+            String content = Files.readString(Path.of("src/test/resources/data/medications_list.json"));
+            perform(
+                            post("/drone/12345/load")
+                                    .header("Idempotency-Key", "key-1")
+                                    .contentType(MediaType.APPLICATION_JSON)
+                                    .content(content))
+                    .andDo(print())
+                    .andExpect(status().isOk())
+                    .andExpect(content().json(objectMapper.writeValueAsString(outputResult)));
+            verify(idempotentRequests, never()).execute(any(), any(), any());
+            verify(droneService, never()).loadDrone(any(), any());
+        }
+
         @Test
         void shouldLoadDrone() throws Exception {
             DroneDto droneDto = new DroneDto("12345", Model.Lightweight, 200, 55);
@@ -154,7 +359,7 @@ public class DroneControllerTest {
 
             String content = Files.readString(Path.of("src/test/resources/data/medications_list.json"));
             String json = objectMapper.writeValueAsString(outputResult);
-            mockMvc.perform(
+            perform(
                             post("/drone/12345/load")
                                     .contentType(MediaType.APPLICATION_JSON)
                                     .content(content))
@@ -169,7 +374,7 @@ public class DroneControllerTest {
 
             OutputResult error = OutputResult.error("Request is not valid: medications[1].name: Name allows only letters, numbers, ‘-‘, ‘_’; ");
             String json = objectMapper.writeValueAsString(error);
-            mockMvc.perform(
+            perform(
                             post("/drone/12345/load")
                                     .contentType(MediaType.APPLICATION_JSON)
                                     .content(content))
@@ -184,7 +389,7 @@ public class DroneControllerTest {
 
             OutputResult error = OutputResult.error("Request is not valid: medications[0].weight: Weight can't be negative; ");
             String json = objectMapper.writeValueAsString(error);
-            mockMvc.perform(
+            perform(
                             post("/drone/12345/load")
                                     .contentType(MediaType.APPLICATION_JSON)
                                     .content(content))
@@ -199,7 +404,7 @@ public class DroneControllerTest {
 
             OutputResult error = OutputResult.error("Request is not valid: medications[0].code: Code allows only upper case letters, underscore and numbers; ");
             String json = objectMapper.writeValueAsString(error);
-            mockMvc.perform(
+            perform(
                             post("/drone/12345/load")
                                     .contentType(MediaType.APPLICATION_JSON)
                                     .content(content))
@@ -214,7 +419,7 @@ public class DroneControllerTest {
 
             OutputResult error = OutputResult.error("Request is not valid: medications[1].image: must be a valid URL; ");
             String json = objectMapper.writeValueAsString(error);
-            mockMvc.perform(
+            perform(
                             post("/drone/12345/load")
                                     .contentType(MediaType.APPLICATION_JSON)
                                     .content(content))
@@ -233,10 +438,31 @@ public class DroneControllerTest {
                 new DroneDto("serial4", Model.Lightweight, 150, 45)
         );
         OutputResult result = OutputResult.success(drones);
-        when(droneService.getAvailableDronesForLoading()).thenReturn(result);
+        when(droneService.getAvailableDronesForLoading(eq(0), eq(Pageable.unpaged()))).thenReturn(result);
 
         String json = objectMapper.writeValueAsString(result);
-        mockMvc.perform(get("/drone/available"))
+        perform(get("/drone/available"))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(content().json(json));
+    }
+
+    @Test
+    void shouldReturnAvailableDronesPage() throws Exception {
+        List<DroneDto> drones = List.of(
+                new DroneDto("serial3", Model.Middleweight, 300, 50),
+                new DroneDto("serial4", Model.Lightweight, 150, 45)
+        );
+        OutputResult result = OutputResult.success(drones);
+        Pageable pageable = PageRequest.of(1, 2, Sort.by(Sort.Direction.DESC, "weightLimit"));
+        when(droneService.getAvailableDronesForLoading(eq(150), eq(pageable))).thenReturn(result);
+
+        String json = objectMapper.writeValueAsString(result);
+        perform(get("/drone/available")
+                        .param("weight", "150")
+                        .param("page", "1")
+                        .param("size", "2")
+                        .param("sort", "weightLimit,desc"))
                 .andDo(print())
                 .andExpect(status().isOk())
                 .andExpect(content().json(json));
@@ -253,7 +479,7 @@ public class DroneControllerTest {
         when(droneService.getMedications(eq(serial))).thenReturn(result);
 
         String json = objectMapper.writeValueAsString(result);
-        mockMvc.perform(get("/drone/" + serial + "/medications"))
+        perform(get("/drone/" + serial + "/medications"))
                 .andDo(print())
                 .andExpect(status().isOk())
                 .andExpect(content().json(json));
@@ -266,10 +492,169 @@ public class DroneControllerTest {
         when(droneService.getBatteryLevel(eq(serial))).thenReturn(result);
 
         String json = objectMapper.writeValueAsString(result);
-        mockMvc.perform(get("/drone/" + serial + "/battery"))
+        perform(get("/drone/" + serial + "/battery"))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(content().json(json));
+    }
+
+    @Test
+    void shouldReturnDroneBatteryHistory() throws Exception {
+        String serial = "12345";
+        Instant from = Instant.parse("2023-07-01T10:00:00Z");
+        Instant to = Instant.parse("2023-07-01T11:00:00Z");
+        List<BatteryAuditDto> history = List.of(
+                new BatteryAuditDto(60, State.IDLE, Instant.parse("2023-07-01T10:00:10Z")),
+                new BatteryAuditDto(55, State.LOADED, Instant.parse("2023-07-01T10:00:20Z"))
+        );
+        OutputResult result = OutputResult.success(history);
+        when(droneService.getBatteryHistory(eq(serial), eq(from), eq(to))).thenReturn(result);
+
+        String json = objectMapper.writeValueAsString(result);
+        perform(get("/drone/" + serial + "/battery/history")
+                        .param("from", from.toString())
+                        .param("to", to.toString()))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(content().json(json));
+    }
+
+    @Nested
+    class TransitionDrones {
+
+        @Test
+        void shouldMoveDrone() throws Exception {
+            String serial = "12345";
+            OutputResult result = OutputResult.success(new TransitionDto(serial, State.LOADED, State.DELIVERING));
+            when(droneService.transitionDrone(eq(serial), eq(State.DELIVERING))).thenReturn(result);
+
+            String json = objectMapper.writeValueAsString(result);
+            perform(post("/drone/" + serial + "/state").param("to", "DELIVERING"))
+                    .andDo(print())
+                    .andExpect(status().isOk())
+                    .andExpect(content().json(json));
+        }
+
+        @Test
+        void shouldMoveDrones() throws Exception {
+            TransitionRequest request = new TransitionRequest(State.DELIVERED, State.RETURNING, null, Model.Lightweight);
+            OutputResult result = OutputResult.success(List.of(
+                    new TransitionDto("12345", State.DELIVERED, State.RETURNING),
+                    new TransitionDto("12346", State.DELIVERED, State.RETURNING)
+            ));
+            when(droneService.transitionDrones(eq(request))).thenReturn(result);
+
+            String json = objectMapper.writeValueAsString(result);
+            perform(
+                            post("/drone/transitions")
+                                    .contentType(MediaType.APPLICATION_JSON)
+                                    .content(objectMapper.writeValueAsString(request)))
+                    .andDo(print())
+                    .andExpect(status().isOk())
+                    .andExpect(content().json(json));
+        }
+
+        @Test
+        void shouldReturnBadRequestIfTargetStateIsMissing() throws Exception {
+            OutputResult error = OutputResult.error("Request is not valid: to: Target state is mandatory; ");
+            String json = objectMapper.writeValueAsString(error);
+            perform(
+                            post("/drone/transitions")
+                                    .contentType(MediaType.APPLICATION_JSON)
+                                    .content("{\"from\":\"DELIVERED\"}"))
+                    .andDo(print())
+                    .andExpect(status().isBadRequest())
+                    .andExpect(content().json(json));
+        }
+    }
+
+    @Test
+    void shouldPlanLoading() throws Exception {
+        List<MedicationDto> medications = List.of(
+                new MedicationDto("Name-1", 50, "CODE_01", "http://localhost/image1"),
+                new MedicationDto("Name-1", 50, "CODE_01", "http://localhost/image1")
+        );
+        OutputResult result = OutputResult.success(List.of(new PlannedLoadDto("12345", 100, Map.of("CODE_01", 2))));
+        when(droneService.planLoading(eq(medications), eq(PlanningMode.BEST_FIT))).thenReturn(result);
+
+        String json = objectMapper.writeValueAsString(result);
+        perform(
+                        post("/drone/plan")
+                                .param("mode", "BEST_FIT")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("{\"medications\":" + objectMapper.writeValueAsString(medications) + "}"))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(content().json(json));
+    }
+
+    @Test
+    void shouldReturnCapacity() throws Exception {
+        OutputResult result = OutputResult.success(new CapacityDto(200, 3, 1250, Map.of(Model.Heavyweight, 2, Model.Middleweight, 1)));
+        when(droneService.getCapacity(eq(200))).thenReturn(result);
+
+        String json = objectMapper.writeValueAsString(result);
+        perform(get("/drone/capacity").param("weight", "200"))
                 .andDo(print())
                 .andExpect(status().isOk())
                 .andExpect(content().json(json));
     }
 
+    @Test
+    @SuppressWarnings("unchecked")
+    void shouldStreamFilteredDroneEvents() throws Exception {
+        ArgumentCaptor<Predicate<DroneEventDto>> filter = ArgumentCaptor.forClass(Predicate.class);
+        ArgumentCaptor<DroneEventBroadcaster.EventSink> sink = ArgumentCaptor.forClass(DroneEventBroadcaster.EventSink.class);
+
+        MvcResult result = mockMvc.perform(get("/drone/events").param("state", "LOADING", "LOADED").param("model", "Heavyweight"))
+                .andExpect(status().isOk())
+                .andReturn();
+        verify(eventBroadcaster).subscribe(filter.capture(), sink.capture());
+        DroneEventDto event = new DroneEventDto(DroneEventType.CHANGED, "12345", Model.Heavyweight, State.LOADED, 80);
+        sink.getValue().send(event);
+
+        assertTrue(result.getRequest().isAsyncStarted());
+        assertTrue(filter.getValue().test(event));
+        assertFalse(filter.getValue().test(new DroneEventDto(DroneEventType.CHANGED, "12345", Model.Heavyweight, State.IDLE, 80)));
+        assertFalse(filter.getValue().test(new DroneEventDto(DroneEventType.CHANGED, "12346", Model.Lightweight, State.LOADED, 80)));
+        assertTrue(result.getResponse().getContentType().startsWith(MediaType.TEXT_EVENT_STREAM_VALUE));
+        assertTrue(result.getResponse().getContentAsString().contains("event:CHANGED\ndata:" + objectMapper.writeValueAsString(event)));
+    }
+
+    @Nested
+    class ExportFleet {
+
+        static final String LINE = "{\"serialNumber\":\"12345\"}\n";
+
+        @Test
+        void shouldWriteExportToResponse() throws Exception {
+            doAnswer(invocation -> {
+                invocation.getArgument(0, OutputStream.class).write(LINE.getBytes(StandardCharsets.UTF_8));
+                return 1;
+            }).when(fleetExporter).export(any());
+
+            perform(get("/drone/export"))
+                    .andExpect(status().isOk())
+                    .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON))
+                    .andExpect(content().string(LINE));
+        }
+
+        @Test
+        void shouldCompressExportIfClientAcceptsGzip() throws Exception {
+            doAnswer(invocation -> {
+                invocation.getArgument(0, OutputStream.class).write(LINE.getBytes(StandardCharsets.UTF_8));
+                return 1;
+            }).when(fleetExporter).export(any());
+
+            MvcResult result = perform(get("/drone/export").header("Accept-Encoding", "gzip, deflate"))
+                    .andExpect(status().isOk())
+                    .andExpect(header().string("Content-Encoding", "gzip"))
+                    .andReturn();
+
+            byte[] compressed = result.getResponse().getContentAsByteArray();
+            try (GZIPInputStream input = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+                assertEquals(LINE, new String(input.readAllBytes(), StandardCharsets.UTF_8));
+            }
+        }
+    }
 }
@@ -0,0 +1,43 @@
+package com.musala.drones.jmh;
+
+import com.musala.drones.scheduler.BatteryLevelScheduler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One battery audit pass over the whole fleet with the configured batch size, mode and audit threads.
+ * Every invocation is a new pass, otherwise partitions claimed by the previous one would be skipped. Run with {@code ./mvnw test -Pjmh -Djmh.args=BatteryAuditJmh}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class BatteryAuditJmh {
+
+    private BatteryLevelScheduler scheduler;
+    private long pass;
+
+    @Setup
+    public void setUp(FleetState fleet) {
+        scheduler = fleet.getBean(BatteryLevelScheduler.class);
+        // far after passes numbered by the clock
+        pass = System.currentTimeMillis();
+    }
+
+    @Benchmark
+    public void auditBatteryLevels() {
+        scheduler.auditPass(pass++);
+    }
+}
@@ -0,0 +1,79 @@
+package com.musala.drones.jmh;
+
+import com.musala.drones.model.MedicationDto;
+import com.musala.drones.model.OutputResult;
+import com.musala.drones.model.Status;
+import com.musala.drones.service.DroneService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Service calls behind the loading endpoints, run with {@code ./mvnw test -Pjmh -Djmh.args=DroneServiceJmh}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DroneServiceJmh {
+
+    private static final String SERIAL = "jmh-load";
+    private static final List<MedicationDto> MEDICATIONS = List.of(
+            new MedicationDto("Aspirin", 50, "ASPIRIN", "https://example.com/aspirin.png"),
+            new MedicationDto("Aspirin", 50, "ASPIRIN", "https://example.com/aspirin.png"),
+            new MedicationDto("Insulin", 120, "INSULIN", "https://example.com/insulin.png"));
+    private static final Pageable FIRST_PAGE = PageRequest.of(0, 50, Sort.by(Sort.Direction.DESC, "batteryCapacity"));
+
+    private DroneService droneService;
+
+    @Setup
+    public void setUp(FleetState fleet) {
+        droneService = fleet.getBean(DroneService.class);
+        fleet.jdbcTemplate.update("INSERT INTO drone (serial_number, model, weight_limit, battery_capacity, state) " +
+                "VALUES (?, 'Heavyweight', 500, 100, 'IDLE')", SERIAL);
+    }
+
+    /**
+     * Makes the drone loadable again, outside of the measured time.
+     */
+    @Setup(Level.Invocation)
+    public void unloadDrone(FleetState fleet) {
+        fleet.jdbcTemplate.update("DELETE FROM medication WHERE drone = (SELECT id FROM drone WHERE serial_number = ?)", SERIAL);
+        fleet.jdbcTemplate.update("UPDATE drone SET state = 'IDLE' WHERE serial_number = ?", SERIAL);
+    }
+
+    @Benchmark
+    public OutputResult loadDrone() {
+        OutputResult result = droneService.loadDrone(SERIAL, MEDICATIONS);
+        if (result.getStatus() != Status.SUCCESS) {
+            throw new IllegalStateException(result.getMessage());
+        }
+        return result;
+    }
+
+    @Benchmark
+    public OutputResult getAvailableDronesForLoading() {
+        return droneService.getAvailableDronesForLoading();
+    }
+
+    @Benchmark
+    public OutputResult getAvailableDronesForLoadingPage() {
+        return droneService.getAvailableDronesForLoading(0, FIRST_PAGE);
+    }
+}
@@ -0,0 +1,57 @@
+package com.musala.drones.jmh;
+
+import com.musala.drones.DronesApplication;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Application context on the embedded database with a seeded fleet, shared by all threads of a benchmark.
+ * The fleet size is set with {@code -p fleetSize=100000}.
+ * <p>
+ * A quarter of the fleet is loaded, the rest is idle with battery levels spread over 0-100%.
+ */
+@State(Scope.Benchmark)
+public class FleetState {
+
+    @Param("10000")
+    public int fleetSize;
+
+    public ConfigurableApplicationContext context;
+    public JdbcTemplate jdbcTemplate;
+
+    @Setup
+    public void startApplication() {
+        context = new SpringApplicationBuilder(DronesApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties("spring.main.banner-mode=off",
+                        "logging.level.root=WARN",
+                        // scheduled jobs would compete with the measured code
+                        "audit.battery.period=P1D",
+                        "audit.battery.maintenanceCron=-",
+                        "drone.telemetry.flushPeriod=P1D",
+                        "fleet.index.checkPeriod=P1D")
+                .run();
+        jdbcTemplate = context.getBean(JdbcTemplate.class);
+        jdbcTemplate.update("INSERT INTO drone (serial_number, model, weight_limit, battery_capacity, state) " +
+                        "SELECT 'jmh-' || g, (ARRAY['Lightweight', 'Middleweight', 'Cruiserweight', 'Heavyweight'])[g % 4 + 1], " +
+                        "(g % 5 + 1) * 100, g % 101, CASE WHEN g % 4 = 0 THEN 'LOADED' ELSE 'IDLE' END " +
+                        "FROM generate_series(1, ?) g", fleetSize);
+        jdbcTemplate.execute("ANALYZE drone");
+    }
+
+    @TearDown
+    public void stopApplication() {
+        context.close();
+    }
+
+    public <T> T getBean(Class<T> type) {
+        return context.getBean(type);
+    }
+}
@@ -0,0 +1,96 @@
+package com.musala.drones.jmh;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.musala.drones.JacksonConfiguration;
+import com.musala.drones.entity.Model;
+import com.musala.drones.model.DroneDto;
+import com.musala.drones.model.DtoJsonSerializers;
+import com.musala.drones.model.MedicationDto;
+import com.musala.drones.model.MedicationList;
+import com.musala.drones.model.OutputResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Request and response bodies of the loading endpoints, with the mapper configured like the application's one
+ * ({@code TUNED}) or with plain reflective bean serializers ({@code DEFAULT}). Run with
+ * {@code ./mvnw test -Pjmh -Djmh.args="SerializationJmh -prof gc"} to see allocations per operation too,
+ * and with {@code -bm sample} for percentiles.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializationJmh {
+
+    @Param("100")
+    public int items;
+
+    @Param({"DEFAULT", "TUNED"})
+    public String mapper;
+
+    private ObjectMapper objectMapper;
+    private String medicationListJson;
+    private OutputResult dronesResult;
+
+    @Setup
+    public void setUp() throws JsonProcessingException {
+        Jackson2ObjectMapperBuilder builder = Jackson2ObjectMapperBuilder.json()
+                .serializationInclusion(JsonInclude.Include.NON_NULL);
+        if (mapper.equals("TUNED")) {
+            builder.modulesToInstall(new JacksonConfiguration().blackbirdModule(), new SimpleModule()
+                    .addSerializer(DroneDto.class, new DtoJsonSerializers.DroneDtoSerializer())
+                    .addSerializer(MedicationDto.class, new DtoJsonSerializers.MedicationDtoSerializer()));
+        }
+        objectMapper = builder.build();
+        MedicationList medicationList = new MedicationList();
+        medicationList.setMedications(IntStream.range(0, items)
+                .mapToObj(i -> new MedicationDto("Medication-" + i, i % 50 + 1, "CODE_" + i, "https://example.com/" + i + ".png"))
+                .collect(Collectors.toList()));
+        medicationListJson = objectMapper.writeValueAsString(medicationList);
+        List<DroneDto> drones = IntStream.range(0, items)
+                .mapToObj(i -> new DroneDto("SN-" + i, Model.values()[i % Model.values().length], (i % 5 + 1) * 100, i % 101))
+                .collect(Collectors.toList());
+        dronesResult = OutputResult.success(drones);
+    }
+
+    @Benchmark
+    public MedicationList readMedicationList() throws JsonProcessingException {
+        return objectMapper.readValue(medicationListJson, MedicationList.class);
+    }
+
+    @Benchmark
+    public String writeOutputResult() throws JsonProcessingException {
+        return objectMapper.writeValueAsString(dronesResult);
+    }
+
+    /**
+     * Like the response body of {@code /drone/available}, which is written to the response stream rather than to a string.
+     */
+    @Benchmark
+    public void streamOutputResult() throws IOException {
+        objectMapper.writeValue(OutputStream.nullOutputStream(), dronesResult);
+    }
+}
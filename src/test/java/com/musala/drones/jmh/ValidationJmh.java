@@ -0,0 +1,107 @@
+package com.musala.drones.jmh;
+
+import com.musala.drones.model.MedicationDto;
+import com.musala.drones.model.MedicationList;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import org.hibernate.validator.constraints.URL;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Valid;
+import javax.validation.Validation;
+import javax.validation.Validator;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Pattern;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Validation of a load request body with the hand-written {@code @ValidMedication} checks ({@code FAST}) against
+ * the field constraints and {@code @Valid} cascading {@link MedicationDto} had before ({@code CASCADED}).
+ * {@code invalidAt} puts an item which is not valid at that position, {@code -1} keeps all of them valid.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ValidationJmh {
+
+    @Param({"100", "1000"})
+    public int items;
+
+    @Param({"CASCADED", "FAST"})
+    public String validation;
+
+    @Param("-1")
+    public int invalidAt;
+
+    private Validator validator;
+    private Object request;
+
+    @Setup
+    public void setUp() {
+        validator = Validation.buildDefaultValidatorFactory().getValidator();
+        List<MedicationDto> medications = IntStream.range(0, items)
+                .mapToObj(i -> new MedicationDto("Medication-" + i, i % 50 + 1, "CODE_" + i,
+                        i == invalidAt ? "image" + i : "https://example.com/" + i + ".png"))
+                .collect(Collectors.toList());
+        if (validation.equals("FAST")) {
+            MedicationList medicationList = new MedicationList();
+            medicationList.setMedications(medications);
+            request = medicationList;
+        } else {
+            request = new CascadedMedicationList(medications.stream()
+                    .map(m -> new CascadedMedication(m.getName(), m.getWeight(), m.getCode(), m.getImage()))
+                    .collect(Collectors.toList()));
+        }
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<Object>> validateMedicationList() {
+        return validator.validate(request);
+    }
+
+    @Data
+    @AllArgsConstructor
+    public static class CascadedMedicationList {
+
+        @Valid
+        private List<CascadedMedication> medications;
+    }
+
+    @Data
+    @AllArgsConstructor
+    public static class CascadedMedication {
+
+        @Pattern(regexp = "^[\\w-_]+$", message = "Name allows only letters, numbers, ‘-‘, ‘_’")
+        @NotBlank(message = "Name is mandatory")
+        private String name;
+        @Min(value = 0, message = "Weight can't be negative")
+        @NotNull(message = "Weight is mandatory")
+        private Integer weight;
+        @Pattern(regexp = "^[A-Z0-9_]+$", message = "Code allows only upper case letters, underscore and numbers")
+        @NotBlank(message = "Code is mandatory")
+        private String code;
+        @URL
+        @NotBlank(message = "Image url is mandatory")
+        private String image;
+    }
+}
@@ -0,0 +1,45 @@
+package com.musala.drones.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.musala.drones.entity.Model;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class DtoJsonSerializersTest {
+
+    // bean serialization with the inclusion of application.properties
+    private final ObjectMapper beanMapper = new ObjectMapper()
+            .setSerializationInclusion(JsonInclude.Include.NON_NULL);
+    private final ObjectMapper serializersMapper = new ObjectMapper()
+            .setSerializationInclusion(JsonInclude.Include.NON_NULL)
+            .registerModule(new SimpleModule()
+                    .addSerializer(DroneDto.class, new DtoJsonSerializers.DroneDtoSerializer())
+                    .addSerializer(MedicationDto.class, new DtoJsonSerializers.MedicationDtoSerializer()));
+
+    @Test
+    void shouldWriteDronesLikeBeanSerialization() throws IOException {
+        assertSameJson(new DroneDto("serial1", Model.Heavyweight, 500, 90));
+        assertSameJson(new DroneDto("serial1", null, 500, null));
+        assertSameJson(new DroneDto(null, Model.Lightweight, null, 0));
+        assertSameJson(new DroneDto());
+        assertSameJson(List.of(new DroneDto("serial1", Model.Heavyweight, 500, 90), new DroneDto("serial2", null, null, 25)));
+    }
+
+    @Test
+    void shouldWriteMedicationsLikeBeanSerialization() throws IOException {
+        assertSameJson(new MedicationDto("Aspirin", 20, "ASP_1", "http://images/aspirin.png"));
+        assertSameJson(new MedicationDto("Aspirin", null, "ASP_1", null));
+        assertSameJson(new MedicationDto(null, 0, null, "\"quoted\" \\ image"));
+        assertSameJson(new MedicationDto());
+    }
+
+    private void assertSameJson(Object value) throws IOException {
+        assertEquals(beanMapper.writeValueAsString(value), serializersMapper.writeValueAsString(value));
+    }
+}
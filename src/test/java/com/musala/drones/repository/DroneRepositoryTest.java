@@ -0,0 +1,192 @@
+package com.musala.drones.repository;
+
+import com.musala.drones.DBConfiguration;
+import com.musala.drones.entity.Drone;
+import com.musala.drones.entity.DronePartial;
+import com.musala.drones.entity.Medication;
+import com.musala.drones.entity.Model;
+import com.musala.drones.entity.State;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.data.jdbc.DataJdbcTest;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DataJdbcTest
+@Import({DBConfiguration.class, SqlStatementCounter.class})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+public class DroneRepositoryTest {
+
+    @Autowired
+    DroneRepository droneRepository;
+
+    @Autowired
+    SqlStatementCounter sqlStatementCounter;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Nested
+    class FindPartialsAfter {
+
+        @Test
+        void shouldWalkWholeFleetByKeyset() {
+            List<Drone> drones = IntStream.rangeClosed(1, 7)
+                    .mapToObj(i -> new Drone("serial" + i, Model.Lightweight, 150, 10 * i, State.IDLE))
+                    .collect(Collectors.toList());
+            droneRepository.saveAll(drones);
+
+            List<DronePartial> walked = new ArrayList<>();
+            long lastId = 0;
+            List<DronePartial> batch;
+            do {
+                batch = droneRepository.findPartialsAfter(lastId, 3);
+                assertTrue(batch.size() <= 3);
+                walked.addAll(batch);
+                if (!batch.isEmpty()) {
+                    lastId = batch.get(batch.size() - 1).getId();
+                }
+            } while (batch.size() == 3);
+
+            List<String> expected = drones.stream().map(Drone::getSerialNumber).collect(Collectors.toList());
+            assertEquals(expected, walked.stream().map(DronePartial::getSerialNumber).collect(Collectors.toList()));
+            assertEquals(70, walked.get(6).getBatteryCapacity());
+            assertEquals(State.IDLE, walked.get(6).getState());
+        }
+    }
+
+    @Nested
+    class FindByState {
+
+        @Test
+        void shouldFetchMedicationsOfAllDronesInOneQuery() {
+            List<Drone> drones = IntStream.rangeClosed(1, 30)
+                    .mapToObj(i -> {
+                        Drone drone = new Drone("serial" + i, Model.Middleweight, 300, 50, i % 3 == 0 ? State.LOADED : State.DELIVERING);
+                        drone.setMedications(List.of(new Medication("CODE_" + i, 1), new Medication("CODE_" + (i + 1), 2)));
+                        return drone;
+                    })
+                    .collect(Collectors.toList());
+            jdbcTemplate.update("INSERT INTO medication_catalog (code, name, weight, image) " +
+                    "SELECT 'CODE_' || g, 'Name-' || g, 10, 'http://localhost/image' || g FROM generate_series(1, 31) g");
+            droneRepository.saveAll(drones);
+            sqlStatementCounter.reset();
+
+            List<Drone> loaded = droneRepository.findByState(State.LOADED);
+
+            assertEquals(2, sqlStatementCounter.getCount());
+            List<Drone> expected = drones.stream().filter(drone -> drone.getState() == State.LOADED).collect(Collectors.toList());
+            assertEquals(expected, loaded);
+        }
+
+        @Test
+        void shouldReturnDronesWithoutMedications() {
+            droneRepository.save(new Drone("serial1", Model.Middleweight, 300, 50, State.IDLE));
+
+            List<Drone> loaded = droneRepository.findByState(State.IDLE);
+
+            assertEquals(1, loaded.size());
+            assertTrue(loaded.get(0).getMedications().isEmpty());
+        }
+    }
+
+    @Nested
+    class ForEachDrone {
+
+        @Test
+        void shouldPassEveryDroneWithItsMedicationsInOrder() {
+            jdbcTemplate.update("INSERT INTO medication_catalog (code, name, weight, image) " +
+                    "SELECT 'CODE_' || g, 'Name-' || g, 10, 'http://localhost/image' || g FROM generate_series(1, 3) g");
+            List<Drone> drones = IntStream.rangeClosed(1, 5)
+                    .mapToObj(i -> {
+                        Drone drone = new Drone("serial" + i, Model.Middleweight, 300, 50, i % 2 == 0 ? State.IDLE : State.LOADED);
+                        if (i % 2 == 1) {
+                            drone.setMedications(List.of(new Medication("CODE_3", 1), new Medication("CODE_" + (i % 3 + 1), i)));
+                        }
+                        return drone;
+                    })
+                    .collect(Collectors.toList());
+            droneRepository.saveAll(drones);
+
+            List<Drone> passed = new ArrayList<>();
+            droneRepository.forEachDrone(2, passed::add);
+
+            assertEquals(drones, passed);
+        }
+    }
+
+    @Nested
+    class UpdateStates {
+
+        @Test
+        void shouldMoveMatchingDronesAndRecordTransitionsInOneStatement() {
+            droneRepository.saveAll(List.of(
+                    new Drone("serial1", Model.Lightweight, 150, 50, State.DELIVERED),
+                    new Drone("serial2", Model.Lightweight, 150, 50, State.DELIVERED),
+                    new Drone("serial3", Model.Heavyweight, 500, 50, State.DELIVERED),
+                    new Drone("serial4", Model.Lightweight, 150, 50, State.DELIVERING),
+                    new Drone("serial5", Model.Lightweight, 150, 50, State.DELIVERED)
+            ));
+            sqlStatementCounter.reset();
+
+            List<String> moved = droneRepository.updateStates(State.DELIVERED, State.RETURNING, 0,
+                    List.of("serial1", "serial2", "serial3", "serial4"), Model.Lightweight);
+
+            assertEquals(1, sqlStatementCounter.getCount());
+            assertEquals(List.of("serial1", "serial2"), moved);
+            assertEquals(List.of("serial1", "serial2"), jdbcTemplate.queryForList("SELECT serial_number FROM drone " +
+                    "WHERE state = 'RETURNING' ORDER BY serial_number", String.class));
+            assertEquals(2, jdbcTemplate.queryForObject("SELECT count(*) FROM drone_transition t JOIN drone d ON d.id = t.drone_id " +
+                    "WHERE t.from_state = 'DELIVERED' AND t.to_state = 'RETURNING' AND d.serial_number IN ('serial1', 'serial2')", Integer.class));
+        }
+    }
+
+    @Nested
+    class UpdateAllStatesIfLoadable {
+
+        @Test
+        void shouldMoveAllDronesAndRecordTheirTransitions() {
+            List<Drone> drones = List.of(
+                    new Drone("serial1", Model.Lightweight, 150, 50, State.IDLE),
+                    new Drone("serial2", Model.Heavyweight, 500, 25, State.IDLE),
+                    new Drone("serial3", Model.Lightweight, 150, 50, State.IDLE)
+            );
+            droneRepository.saveAll(drones);
+
+            assertTrue(droneRepository.updateAllStatesIfLoadable(List.of(drones.get(0).getId(), drones.get(1).getId()), 25, State.LOADED));
+
+            assertEquals(List.of("serial1", "serial2"), jdbcTemplate.queryForList("SELECT serial_number FROM drone " +
+                    "WHERE state = 'LOADED' ORDER BY serial_number", String.class));
+            assertEquals(2, jdbcTemplate.queryForObject("SELECT count(*) FROM drone_transition " +
+                    "WHERE from_state = 'IDLE' AND to_state = 'LOADED'", Integer.class));
+        }
+
+        @Test
+        void shouldMoveNothingIfAnyDroneIsNotLoadable() {
+            List<Drone> drones = List.of(
+                    new Drone("serial1", Model.Lightweight, 150, 50, State.IDLE),
+                    new Drone("serial2", Model.Lightweight, 150, 50, State.LOADING),
+                    new Drone("serial3", Model.Lightweight, 150, 10, State.IDLE)
+            );
+            droneRepository.saveAll(drones);
+            long first = drones.get(0).getId();
+
+            assertFalse(droneRepository.updateAllStatesIfLoadable(List.of(first, drones.get(1).getId()), 25, State.LOADED));
+            assertFalse(droneRepository.updateAllStatesIfLoadable(List.of(first, drones.get(2).getId()), 25, State.LOADED));
+
+            assertEquals(0, jdbcTemplate.queryForObject("SELECT count(*) FROM drone WHERE state = 'LOADED'", Integer.class));
+            assertEquals(0, jdbcTemplate.queryForObject("SELECT count(*) FROM drone_transition", Integer.class));
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.musala.drones.repository;
+
+import com.musala.drones.DBConfiguration;
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.FlywayException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.data.jdbc.DataJdbcTest;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Migrates a schema of its own up to the version before the catalog, so rows can be put in between the migrations.
+ */
+@DataJdbcTest
+@Import(DBConfiguration.class)
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class MedicationCatalogMigrationTest {
+
+    private static final String SCHEMA = "catalog_migration";
+
+    @Autowired
+    DataSource dataSource;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void dropSchema() {
+        jdbcTemplate.execute("DROP SCHEMA IF EXISTS " + SCHEMA + " CASCADE");
+    }
+
+    @Test
+    void shouldMoveMatchingMedicationsToCatalog() {
+        migrateTo("1.4");
+        insertMedication(0, "Name-1", 50);
+        insertMedication(1, "Name-1", 50);
+        insertMedication(2, "Name-2", 10);
+
+        migrateTo("1.5");
+
+        List<String> catalog = jdbcTemplate.queryForList("SELECT code || ' ' || name || ' ' || weight FROM " + SCHEMA
+                + ".medication_catalog ORDER BY code", String.class);
+        assertEquals(List.of("CODE_Name-1 Name-1 50", "CODE_Name-2 Name-2 10"), catalog);
+    }
+
+    @Test
+    void shouldFailIfMedicationsWithSameCodeDiffer() {
+        migrateTo("1.4");
+        insertMedication(0, "Name-1", 50);
+        insertMedication(1, "Name-1", 60);
+
+        FlywayException exception = assertThrows(FlywayException.class, () -> migrateTo("1.5"));
+
+        assertTrue(exception.getMessage().contains("Loaded medications with codes CODE_Name-1 differ in name, weight or image"),
+                exception.getMessage());
+    }
+
+    private void migrateTo(String version) {
+        Flyway.configure()
+                .dataSource(dataSource)
+                .schemas(SCHEMA)
+                .target(version)
+                .load()
+                .migrate();
+    }
+
+    private void insertMedication(int droneKey, String name, int weight) {
+        jdbcTemplate.update("INSERT INTO " + SCHEMA + ".drone (serial_number, model, weight_limit, battery_capacity, state) " +
+                "VALUES ('serial1', 'Lightweight', 500, 100, 'LOADED') ON CONFLICT DO NOTHING");
+        jdbcTemplate.update("INSERT INTO " + SCHEMA + ".medication (drone, drone_key, name, weight, code, image) " +
+                "SELECT id, ?, ?, ?, ?, 'http://localhost/image' FROM " + SCHEMA + ".drone", droneKey, name, weight, "CODE_" + name);
+    }
+}
@@ -0,0 +1,268 @@
+package com.musala.drones.scheduler;
+
+import com.musala.drones.DBConfiguration;
+import com.musala.drones.entity.BatteryAudit;
+import com.musala.drones.entity.Drone;
+import com.musala.drones.entity.DronePartial;
+import com.musala.drones.entity.Model;
+import com.musala.drones.entity.State;
+import com.musala.drones.repository.AuditLeaseRepository;
+import com.musala.drones.repository.BatteryAuditRepository;
+import com.musala.drones.repository.DroneRepository;
+import com.musala.drones.service.DroneCache;
+import com.musala.drones.service.DroneEventBroadcaster;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.data.jdbc.DataJdbcTest;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.task.SyncTaskExecutor;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DataJdbcTest
+@Import(DBConfiguration.class)
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+public class BatteryLevelSchedulerTest {
+
+    DroneRepository droneRepository;
+    BatteryAuditRepository batteryAuditRepository;
+    AuditLeaseRepository auditLeaseRepository;
+    DroneEventBroadcaster eventBroadcaster;
+    JdbcTemplate jdbcTemplate;
+    MeterRegistry meterRegistry;
+
+    @Autowired
+    public BatteryLevelSchedulerTest(DroneRepository droneRepository, JdbcTemplate jdbcTemplate) {
+        this.droneRepository = droneRepository;
+        this.batteryAuditRepository = new BatteryAuditRepository(jdbcTemplate);
+        this.auditLeaseRepository = new AuditLeaseRepository(jdbcTemplate);
+        this.jdbcTemplate = jdbcTemplate;
+        this.meterRegistry = new SimpleMeterRegistry();
+        DroneCache droneCache = new DroneCache(droneRepository, Duration.ofSeconds(5), 100, meterRegistry);
+        this.eventBroadcaster = new DroneEventBroadcaster(droneRepository, droneCache, new SyncTaskExecutor(), 100, meterRegistry);
+    }
+
+    @Test
+    void shouldRecordEveryDroneInAuditHistory() {
+        List<Drone> drones = IntStream.rangeClosed(1, 25)
+                .mapToObj(i -> new Drone("serial" + i, Model.Middleweight, 300, i, State.IDLE))
+                .collect(Collectors.toList());
+        droneRepository.saveAll(drones);
+        BatteryLevelScheduler scheduler = scheduler(AuditMode.FULL);
+
+        Instant from = Instant.now();
+        scheduler.auditPass(1);
+        scheduler.auditPass(2);
+
+        assertEquals(50, countAudits());
+        List<BatteryAudit> history = batteryAuditRepository.findBySerialNumber("serial7", from, Instant.now().plusSeconds(1));
+        assertEquals(2, history.size());
+        assertEquals(7, history.get(0).getBatteryCapacity());
+        assertEquals(State.IDLE, history.get(0).getState());
+        assertEquals(2, meterRegistry.timer("drones.audit.duration").count());
+        assertEquals(50, meterRegistry.counter("drones.audit.recorded").count());
+    }
+
+    @Test
+    void shouldDropPartitionsOutsideRetentionPeriod() {
+        Drone drone = droneRepository.save(new Drone("serial1", Model.Middleweight, 300, 50, State.IDLE));
+        BatteryLevelScheduler scheduler = scheduler(AuditMode.FULL);
+        scheduler.auditPass(1);
+        LocalDate today = LocalDate.now(ZoneOffset.UTC);
+        batteryAuditRepository.createPartition(today.minusDays(40));
+        batteryAuditRepository.createPartition(today.minusDays(31));
+
+        int dropped = batteryAuditRepository.dropPartitionsBefore(today.minusDays(30));
+
+        assertEquals(2, dropped);
+        Instant now = Instant.now();
+        assertEquals(1, batteryAuditRepository.findBySerialNumber(drone.getSerialNumber(), now.minus(Duration.ofDays(1)), now).size());
+    }
+
+    @Test
+    void shouldRecordOnlyChangedDronesInDeltaMode() {
+        List<Drone> drones = IntStream.rangeClosed(1, 25)
+                .mapToObj(i -> new Drone("serial" + i, Model.Middleweight, 300, 50, State.IDLE))
+                .collect(Collectors.toList());
+        droneRepository.saveAll(drones);
+        BatteryLevelScheduler scheduler = scheduler(AuditMode.DELTA);
+
+        scheduler.auditPass(1);
+        scheduler.auditPass(2);
+        assertEquals(25, countAudits());
+
+        jdbcTemplate.update("UPDATE drone SET battery_capacity = 49 WHERE serial_number = 'serial3'");
+        jdbcTemplate.update("UPDATE drone SET state = 'LOADED' WHERE serial_number = 'serial12'");
+        scheduler.auditPass(3);
+
+        assertEquals(27, countAudits());
+    }
+
+    @Test
+    void nodesShouldShareTheFleetAndAuditEveryPartitionOncePerPass() {
+        List<Drone> drones = IntStream.rangeClosed(1, 25)
+                .mapToObj(i -> new Drone("serial" + i, Model.Middleweight, 300, 50, State.IDLE))
+                .collect(Collectors.toList());
+        droneRepository.saveAll(drones);
+        MeterRegistry firstRegistry = new SimpleMeterRegistry();
+        MeterRegistry secondRegistry = new SimpleMeterRegistry();
+        BatteryLevelScheduler first = scheduler(AuditMode.DELTA, "node-a", firstRegistry);
+        BatteryLevelScheduler second = scheduler(AuditMode.DELTA, "node-b", secondRegistry);
+
+        first.auditPass(1);
+        assertEquals(25, countAudits());
+
+        second.auditPass(2);
+        first.auditPass(2);
+        first.auditPass(2);
+        second.auditPass(2);
+
+        double secondChecked = secondRegistry.counter("drones.audit.checked").count();
+        assertTrue(secondChecked > 0 && secondChecked < 25);
+        assertEquals(50, firstRegistry.counter("drones.audit.checked").count() + secondChecked);
+        // partitions taken over by the second node are recorded in full, the first node records only changes
+        assertEquals(secondChecked, secondRegistry.counter("drones.audit.recorded").count());
+        assertEquals(25 + (int) secondChecked, countAudits());
+    }
+
+    @Test
+    void nodeShouldNotClaimPartitionsStillAuditedByEarlierPass() {
+        List<Drone> drones = IntStream.rangeClosed(1, 25)
+                .mapToObj(i -> new Drone("serial" + i, Model.Middleweight, 300, 50, State.IDLE))
+                .collect(Collectors.toList());
+        droneRepository.saveAll(drones);
+        // the first node never finishes partitions with drones, like a pass running for longer than the period,
+        // the 25 drones span at most 4 partitions and each of its 4 workers stops at one of them
+        BatteryLevelScheduler first = scheduler(AuditMode.FULL, "node-a", new BatteryAuditRepository(jdbcTemplate) {
+            @Override
+            public void saveAll(List<DronePartial> drones, Instant auditedAt) {
+                if (!drones.isEmpty()) {
+                    throw new IllegalStateException("still auditing");
+                }
+            }
+        }, new SimpleMeterRegistry());
+        BatteryLevelScheduler second = scheduler(AuditMode.FULL, "node-b", new SimpleMeterRegistry());
+
+        assertThrows(CompletionException.class, () -> first.auditPass(1));
+        jdbcTemplate.update("DELETE FROM battery_audit_node WHERE node = 'node-a'");
+        second.auditPass(2);
+        assertEquals(0, countAudits());
+
+        jdbcTemplate.update("UPDATE battery_audit_partition SET claimed_at = now() - interval '2 minutes' WHERE owner = 'node-a'");
+        second.auditPass(3);
+        assertEquals(25, countAudits());
+        second.auditPass(4);
+        assertEquals(50, countAudits());
+    }
+
+    @Test
+    void nodeShouldAuditPartitionsLeftUnclaimedByPreviousPass() {
+        List<Drone> drones = IntStream.rangeClosed(1, 25)
+                .mapToObj(i -> new Drone("serial" + i, Model.Middleweight, 300, 50, State.IDLE))
+                .collect(Collectors.toList());
+        droneRepository.saveAll(drones);
+        // the first node is still seen, but crashed before auditing its partitions
+        auditLeaseRepository.heartbeat("node-a", Duration.ofDays(1));
+        MeterRegistry registry = new SimpleMeterRegistry();
+        BatteryLevelScheduler second = scheduler(AuditMode.FULL, "node-b", registry);
+
+        second.auditPass(1);
+        double ownChecked = registry.counter("drones.audit.checked").count();
+        assertTrue(ownChecked > 0 && ownChecked < 25);
+
+        second.auditPass(2);
+        assertEquals(25 + (int) ownChecked, countAudits());
+        assertEquals(25, jdbcTemplate.queryForObject("SELECT count(DISTINCT drone_id) FROM battery_audit", Integer.class));
+    }
+
+    @Test
+    void trackerShouldKeepEveryDroneWhenUsedConcurrently() throws Exception {
+        BatteryAuditTracker tracker = new BatteryAuditTracker(1, new int[]{25});
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Long>> recorded = LongStream.range(0, 4)
+                    .mapToObj(partition -> executor.submit(() -> LongStream.rangeClosed(partition * 10_000 + 1, (partition + 1) * 10_000)
+                            .filter(id -> tracker.shouldRecord(partial(id, 50, State.IDLE)))
+                            .count()))
+                    .collect(Collectors.toList());
+            for (Future<Long> partition : recorded) {
+                assertEquals(10_000, partition.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(40_000, tracker.size());
+    }
+
+    @Test
+    void trackerShouldIgnoreSmallChangesUnlessThresholdIsCrossed() {
+        BatteryAuditTracker tracker = new BatteryAuditTracker(5, new int[]{25});
+
+        assertTrue(tracker.shouldRecord(partial(1, 28, State.IDLE)));
+        assertFalse(tracker.shouldRecord(partial(1, 28, State.IDLE)));
+        assertFalse(tracker.shouldRecord(partial(1, 26, State.IDLE)));
+        assertTrue(tracker.shouldRecord(partial(1, 24, State.IDLE)));
+        assertFalse(tracker.shouldRecord(partial(1, 21, State.IDLE)));
+        assertTrue(tracker.shouldRecord(partial(1, 21, State.RETURNING)));
+        assertTrue(tracker.shouldRecord(partial(1, 16, State.RETURNING)));
+        assertTrue(tracker.shouldRecord(partial(2, 16, State.RETURNING)));
+    }
+
+    @Test
+    void trackerShouldKeepEveryDroneWhenGrowing() {
+        BatteryAuditTracker tracker = new BatteryAuditTracker(1, new int[]{25});
+        for (long id = 1; id <= 10_000; id++) {
+            assertTrue(tracker.shouldRecord(partial(id, 50, State.IDLE)));
+        }
+        for (long id = 1; id <= 10_000; id++) {
+            assertFalse(tracker.shouldRecord(partial(id, 50, State.IDLE)));
+        }
+        assertEquals(10_000, tracker.size());
+    }
+
+    private BatteryLevelScheduler scheduler(AuditMode mode) {
+        return scheduler(mode, "node", meterRegistry);
+    }
+
+    // drones saved by the test transaction are visible only to its connection, so partitions are audited on the test thread
+    private BatteryLevelScheduler scheduler(AuditMode mode, String node, MeterRegistry meterRegistry) {
+        return scheduler(mode, node, batteryAuditRepository, meterRegistry);
+    }
+
+    private BatteryLevelScheduler scheduler(AuditMode mode, String node, BatteryAuditRepository batteryAuditRepository, MeterRegistry meterRegistry) {
+        return new BatteryLevelScheduler(droneRepository, batteryAuditRepository, auditLeaseRepository, new BatteryAuditTracker(1, new int[]{25}),
+                eventBroadcaster, new SyncTaskExecutor(), 10, mode, 10, 4, Duration.ofDays(1), Duration.ofMinutes(1), node, meterRegistry);
+    }
+
+    private Integer countAudits() {
+        return jdbcTemplate.queryForObject("SELECT count(*) FROM battery_audit", Integer.class);
+    }
+
+    private static DronePartial partial(long id, int batteryCapacity, State state) {
+        DronePartial partial = new DronePartial();
+        partial.setId(id);
+        partial.setBatteryCapacity(batteryCapacity);
+        partial.setState(state);
+        return partial;
+    }
+}
@@ -0,0 +1,104 @@
+package com.musala.drones.service;
+
+import com.musala.drones.entity.DronePartial;
+import com.musala.drones.entity.Model;
+import com.musala.drones.entity.State;
+import com.musala.drones.model.DroneEventDto;
+import com.musala.drones.model.DroneEventType;
+import com.musala.drones.repository.DroneRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.SyncTaskExecutor;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+public class DroneEventBroadcasterTest {
+
+    DroneRepository droneRepository = mock(DroneRepository.class);
+    MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    DroneCache droneCache = new DroneCache(droneRepository, Duration.ofSeconds(5), 100, meterRegistry);
+
+    @Test
+    void shouldReadChangedDronesOnceForAllSubscribers() {
+        when(droneRepository.findPartialsBySerialNumbers(any())).thenReturn(List.of(
+                partial("12345", Model.Heavyweight, State.LOADING), partial("12346", Model.Lightweight, State.IDLE)));
+        DroneEventBroadcaster broadcaster = new DroneEventBroadcaster(droneRepository, droneCache, new SyncTaskExecutor(), 10, meterRegistry);
+        RecordingSink idle = new RecordingSink();
+        RecordingSink heavyweight = new RecordingSink();
+        broadcaster.subscribe(event -> event.getState() == State.IDLE, idle);
+        broadcaster.subscribe(event -> event.getModel() == Model.Heavyweight, heavyweight);
+
+        droneCache.invalidate(List.of("12345", "12346"));
+
+        verify(droneRepository, times(1)).findPartialsBySerialNumbers(any());
+        assertEquals(List.of(new DroneEventDto(DroneEventType.CHANGED, "12346", Model.Lightweight, State.IDLE, 50)), idle.events);
+        assertEquals(List.of(new DroneEventDto(DroneEventType.CHANGED, "12345", Model.Heavyweight, State.LOADING, 50)), heavyweight.events);
+    }
+
+    @Test
+    void shouldNotReadChangedDronesWithoutSubscribers() {
+        new DroneEventBroadcaster(droneRepository, droneCache, new SyncTaskExecutor(), 10, meterRegistry);
+
+        droneCache.invalidate(List.of("12345"));
+
+        verifyNoInteractions(droneRepository);
+    }
+
+    @Test
+    void shouldEvictSubscriberWhichDoesNotKeepUp() {
+        List<Runnable> pendingDrains = new ArrayList<>();
+        Executor stalledExecutor = pendingDrains::add;
+        DroneEventBroadcaster broadcaster = new DroneEventBroadcaster(droneRepository, droneCache, stalledExecutor, 2, meterRegistry);
+        RecordingSink slow = new RecordingSink();
+        RecordingSink lightweight = new RecordingSink();
+        broadcaster.subscribe(event -> true, slow);
+        broadcaster.subscribe(event -> event.getModel() == Model.Lightweight, lightweight);
+
+        broadcaster.publishAudited(List.of(partial("1", Model.Heavyweight, State.IDLE),
+                partial("2", Model.Heavyweight, State.IDLE), partial("3", Model.Heavyweight, State.IDLE)));
+
+        assertTrue(slow.evicted);
+        assertEquals(1, broadcaster.subscriberCount());
+        assertEquals(1, meterRegistry.counter("drones.events.evictions").count());
+        pendingDrains.forEach(Runnable::run);
+        assertTrue(slow.events.isEmpty());
+    }
+
+    private static DronePartial partial(String serialNumber, Model model, State state) {
+        DronePartial partial = new DronePartial();
+        partial.setSerialNumber(serialNumber);
+        partial.setModel(model);
+        partial.setBatteryCapacity(50);
+        partial.setState(state);
+        return partial;
+    }
+
+    private static class RecordingSink implements DroneEventBroadcaster.EventSink {
+
+        final List<DroneEventDto> events = new ArrayList<>();
+        boolean evicted;
+
+        @Override
+        public void send(DroneEventDto event) {
+            events.add(event);
+        }
+
+        @Override
+        public void evicted() {
+            evicted = true;
+        }
+    }
+}
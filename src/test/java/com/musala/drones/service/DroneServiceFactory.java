@@ -0,0 +1,52 @@
+package com.musala.drones.service;
+
+import com.musala.drones.repository.BatteryAuditRepository;
+import com.musala.drones.repository.DroneRepository;
+import com.musala.drones.repository.MedicationCatalogRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+
+/**
+ * Builds {@link DroneServiceImpl}s for tests and benchmarks. All services built by one factory share its collaborators,
+ * so a test can check the catalog, the cache or the meters whichever service it called.
+ */
+public class DroneServiceFactory {
+
+    // small, so telemetry is flushed in several batches
+    private static final int TELEMETRY_BATCH_SIZE = 2;
+
+    final BatteryAuditRepository batteryAuditRepository;
+    final MedicationCatalog medicationCatalog;
+    final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    final DroneCache droneCache;
+    final DroneTransitionEngine transitionEngine;
+    final TelemetryBuffer telemetryBuffer;
+    final FleetIndex fleetIndex;
+
+    public DroneServiceFactory(DroneRepository droneRepository, JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this(droneRepository, jdbcTemplate, transactionManager, false);
+    }
+
+    /**
+     * @param fleetIndexEnabled whether the fleet index follows changes, it's rebuilt only on {@link FleetIndex#rebuild()}
+     */
+    public DroneServiceFactory(DroneRepository droneRepository, JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                               boolean fleetIndexEnabled) {
+        this.batteryAuditRepository = new BatteryAuditRepository(jdbcTemplate);
+        this.medicationCatalog = new MedicationCatalog(new MedicationCatalogRepository(new NamedParameterJdbcTemplate(jdbcTemplate)), 1000);
+        this.droneCache = new DroneCache(droneRepository, Duration.ofMinutes(1), 1000, meterRegistry);
+        this.transitionEngine = new DroneTransitionEngine(droneRepository, droneCache);
+        this.telemetryBuffer = new TelemetryBuffer(droneRepository, droneCache, transitionEngine, transactionManager, TELEMETRY_BATCH_SIZE);
+        this.fleetIndex = new FleetIndex(droneRepository, droneCache, Runnable::run, fleetIndexEnabled, 1000);
+    }
+
+    public DroneServiceImpl create(DroneRepository droneRepository, LoadingMode mode) {
+        return new DroneServiceImpl(droneRepository, batteryAuditRepository, medicationCatalog, droneCache, telemetryBuffer,
+                transitionEngine, fleetIndex, mode, 3, meterRegistry);
+    }
+}
@@ -4,31 +4,62 @@ import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.musala.drones.DBConfiguration;
 import com.musala.drones.entity.Drone;
+import com.musala.drones.entity.DronePartial;
 import com.musala.drones.entity.Medication;
+import com.musala.drones.entity.MedicationCatalogEntry;
 import com.musala.drones.entity.Model;
 import com.musala.drones.entity.State;
+import com.musala.drones.model.BatteryAuditDto;
+import com.musala.drones.model.CapacityDto;
 import com.musala.drones.model.DroneDto;
 import com.musala.drones.model.MedicationDto;
 import com.musala.drones.model.OutputResult;
+import com.musala.drones.model.PlannedLoadDto;
+import com.musala.drones.model.RegistrationResult;
 import com.musala.drones.model.Status;
+import com.musala.drones.model.TelemetryDto;
+import com.musala.drones.model.TelemetryResult;
+import com.musala.drones.model.TransitionDto;
+import com.musala.drones.model.TransitionRequest;
+import com.musala.drones.repository.BatteryAuditRepository;
 import com.musala.drones.repository.DroneRepository;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.assertj.core.api.Assertions;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
+import org.mockito.AdditionalAnswers;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.data.jdbc.DataJdbcTest;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
 
 import java.io.File;
 import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 
 @DataJdbcTest
 @Import(DBConfiguration.class)
@@ -36,13 +67,31 @@ import static org.junit.jupiter.api.Assertions.assertNotNull;
 public class DroneServiceTest {
 
     DroneRepository droneRepository;
+    BatteryAuditRepository batteryAuditRepository;
+    MedicationCatalog medicationCatalog;
+    MeterRegistry meterRegistry;
+    DroneCache droneCache;
+    TelemetryBuffer telemetryBuffer;
+    DroneTransitionEngine transitionEngine;
+    JdbcTemplate jdbcTemplate;
+    PlatformTransactionManager transactionManager;
+    DroneServiceFactory droneServiceFactory;
     DroneService droneService;
     ObjectMapper objectMapper;
 
     @Autowired
-    public DroneServiceTest(DroneRepository droneRepository) {
+    public DroneServiceTest(DroneRepository droneRepository, JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
         this.droneRepository = droneRepository;
-        this.droneService = new DroneServiceImpl(droneRepository);
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionManager = transactionManager;
+        this.droneServiceFactory = new DroneServiceFactory(droneRepository, jdbcTemplate, transactionManager);
+        this.batteryAuditRepository = droneServiceFactory.batteryAuditRepository;
+        this.medicationCatalog = droneServiceFactory.medicationCatalog;
+        this.meterRegistry = droneServiceFactory.meterRegistry;
+        this.droneCache = droneServiceFactory.droneCache;
+        this.transitionEngine = droneServiceFactory.transitionEngine;
+        this.telemetryBuffer = droneServiceFactory.telemetryBuffer;
+        this.droneService = droneServiceFactory.create(droneRepository, LoadingMode.PESSIMISTIC);
         this.objectMapper = new ObjectMapper();
     }
 
@@ -62,6 +111,42 @@ public class DroneServiceTest {
         }
     }
 
+    @Nested
+    class RegisterDrones {
+
+        @Test
+        void shouldRegisterDronesAndReportDuplicates() {
+            droneRepository.save(new Drone("serial2", Model.Lightweight, 150, 60, State.LOADED));
+            List<DroneDto> droneDtos = List.of(
+                    new DroneDto("serial1", Model.Lightweight, 150, 60),
+                    new DroneDto("serial2", Model.Middleweight, 300, 70),
+                    new DroneDto("serial3", Model.Heavyweight, 500, 80),
+                    new DroneDto("serial1", Model.Cruiserweight, 400, 90)
+            );
+
+            OutputResult outputResult = droneService.registerDrones(droneDtos);
+
+            assertEquals(Status.SUCCESS, outputResult.getStatus());
+            List<RegistrationResult> expected = List.of(
+                    RegistrationResult.registered("serial1"),
+                    RegistrationResult.failed("serial2", "Drone with such serial number already exists"),
+                    RegistrationResult.registered("serial3"),
+                    RegistrationResult.failed("serial1", "Drone with such serial number already exists")
+            );
+            assertEquals(expected, outputResult.getData());
+            assertEquals(droneDtos.get(0), DroneDto.fromDrone(droneRepository.findBySerialNumber("serial1")));
+            assertEquals(State.IDLE, droneRepository.findBySerialNumber("serial3").getState());
+            assertEquals(State.LOADED, droneRepository.findBySerialNumber("serial2").getState());
+        }
+
+        @Test
+        void shouldReturnFailedIfDronesIsEmpty() {
+            OutputResult outputResult = droneService.registerDrones(Collections.emptyList());
+            assertEquals(Status.FAILED, outputResult.getStatus());
+            assertEquals("Drones list is empty", outputResult.getMessage());
+        }
+    }
+
     @Nested
     class LoadDrone {
 
@@ -83,10 +168,110 @@ public class DroneServiceTest {
                     .usingRecursiveComparison()
                     .ignoringFields("id", "medications")
                     .isEqualTo(drone);
-            List<MedicationDto> actualMedications = actual.getMedications().stream()
-                    .map(MedicationDto::fromMedication)
-                    .collect(Collectors.toList());
-            assertEquals(medications, actualMedications);
+            assertEquals(medications, droneService.getMedications(serialNumber).getData());
+        }
+
+        @Test
+        void shouldReplaceMedicationsOfPreviousLoad() throws IOException {
+            String serialNumber = "serial1";
+            Drone drone = new Drone(serialNumber, Model.Cruiserweight, 400, 60, State.IDLE);
+            medicationCatalog.register(List.of(
+                    new MedicationCatalogEntry("OLD_1", "Old-1", 10, "http://localhost/old1"),
+                    new MedicationCatalogEntry("OLD_2", "Old-2", 10, "http://localhost/old2")
+            ));
+            drone.setMedications(List.of(new Medication("OLD_1", 2), new Medication("OLD_2", 1)));
+            droneRepository.save(drone);
+
+            File file = new File("src/test/resources/data/medications.json");
+            List<MedicationDto> medications = objectMapper.readValue(file, new TypeReference<>() {});
+            OutputResult outputResult = droneService.loadDrone(serialNumber, medications);
+
+            assertEquals(Status.SUCCESS, outputResult.getStatus());
+            Drone actual = droneRepository.findBySerialNumber(serialNumber);
+            assertNotNull(actual);
+            assertEquals(State.LOADED, actual.getState());
+            assertEquals(medications, droneService.getMedications(serialNumber).getData());
+        }
+
+        @Test
+        @SuppressWarnings("unchecked")
+        void shouldStoreRepeatedMedicationOnceWithQuantity() {
+            String serialNumber = "serial1";
+            droneRepository.save(new Drone(serialNumber, Model.Cruiserweight, 400, 60, State.IDLE));
+            List<MedicationDto> medications = List.of(
+                    new MedicationDto("Name-1", 50, "CODE_01", "http://localhost/image1"),
+                    new MedicationDto("Name-2", 150, "CODE_02", "http://localhost/image2"),
+                    new MedicationDto("Name-1", 50, "CODE_01", "http://localhost/image1")
+            );
+
+            OutputResult outputResult = droneService.loadDrone(serialNumber, medications);
+
+            assertEquals(Status.SUCCESS, outputResult.getStatus());
+            Drone actual = droneRepository.findBySerialNumber(serialNumber);
+            assertNotNull(actual);
+            assertEquals(List.of(new Medication("CODE_01", 2), new Medication("CODE_02", 1)), actual.getMedications());
+            Assertions.assertThat((List<MedicationDto>) droneService.getMedications(serialNumber).getData())
+                    .containsExactlyInAnyOrderElementsOf(medications);
+        }
+
+        @Test
+        @SuppressWarnings("unchecked")
+        void shouldInvalidateCachedDroneOnLoad() {
+            String serialNumber = "serial1";
+            droneRepository.save(new Drone(serialNumber, Model.Cruiserweight, 400, 60, State.IDLE));
+            assertEquals(List.of(), droneService.getMedications(serialNumber).getData());
+            List<MedicationDto> medications = List.of(new MedicationDto("Name-1", 50, "CODE_01", "http://localhost/image1"));
+
+            droneService.loadDrone(serialNumber, medications);
+
+            assertEquals(medications, (List<MedicationDto>) droneService.getMedications(serialNumber).getData());
+        }
+
+        @Test
+        void shouldReturnFailedIfMedicationDoesNotMatchCatalog() {
+            String serialNumber = "serial1";
+            droneRepository.save(new Drone(serialNumber, Model.Cruiserweight, 400, 60, State.IDLE));
+            medicationCatalog.register(List.of(new MedicationCatalogEntry("CODE_01", "Name-1", 50, "http://localhost/image1")));
+
+            OutputResult outputResult = droneService.loadDrone(serialNumber, List.of(new MedicationDto("Name-1", 10, "CODE_01", "http://localhost/image1")));
+
+            assertEquals(Status.FAILED, outputResult.getStatus());
+            assertEquals("Medication with code: CODE_01 doesn't match catalog entry with name: Name-1, weight: 50, image: http://localhost/image1",
+                    outputResult.getMessage());
+            assertEquals(State.IDLE, droneRepository.findBySerialNumber(serialNumber).getState());
+        }
+
+        @Test
+        void shouldNotAddMedicationsOfRejectedLoadToCatalog() {
+            droneRepository.save(new Drone("busy", Model.Cruiserweight, 400, 60, State.LOADED));
+            droneRepository.save(new Drone("weak", Model.Cruiserweight, 400, 10, State.IDLE));
+            droneRepository.save(new Drone("small", Model.Lightweight, 100, 60, State.IDLE));
+            droneRepository.save(new Drone("serial1", Model.Cruiserweight, 400, 60, State.IDLE));
+            MedicationDto typo = new MedicationDto("Nmae-1", 50, "CODE_01", "http://localhost/image1");
+            MedicationDto heavy = new MedicationDto("Name-1", 150, "CODE_01", "http://localhost/image1");
+
+            assertEquals(Status.FAILED, droneService.loadDrone("unknown", List.of(typo)).getStatus());
+            assertEquals(Status.FAILED, droneService.loadDrone("busy", List.of(typo)).getStatus());
+            assertEquals(Status.FAILED, droneService.loadDrone("weak", List.of(typo)).getStatus());
+            assertEquals(Status.FAILED, droneService.loadDrone("small", List.of(heavy)).getStatus());
+
+            assertEquals(Map.of(), medicationCatalog.findAll(List.of("CODE_01")));
+            MedicationDto medication = new MedicationDto("Name-1", 50, "CODE_01", "http://localhost/image1");
+            assertEquals(Status.SUCCESS, droneService.loadDrone("serial1", List.of(medication)).getStatus());
+        }
+
+        @Test
+        void shouldReturnFailedIfMedicationsOfRequestDontMatch() {
+            droneRepository.save(new Drone("serial1", Model.Cruiserweight, 400, 60, State.IDLE));
+
+            OutputResult outputResult = droneService.loadDrone("serial1", List.of(
+                    new MedicationDto("Name-1", 50, "CODE_01", "http://localhost/image1"),
+                    new MedicationDto("Name-1", 10, "CODE_01", "http://localhost/image1")));
+
+            assertEquals(Status.FAILED, outputResult.getStatus());
+            assertEquals("Medication with code: CODE_01 doesn't match catalog entry with name: Name-1, weight: 50, image: http://localhost/image1",
+                    outputResult.getMessage());
+            assertEquals(Map.of(), medicationCatalog.findAll(List.of("CODE_01")));
         }
 
         @Test
@@ -130,6 +315,7 @@ public class DroneServiceTest {
             OutputResult outputResult = droneService.loadDrone(serialNumber, medications);
             assertEquals(Status.FAILED, outputResult.getStatus());
             assertEquals("Can't load drone when it's battery level below 25, actual level: 6", outputResult.getMessage());
+            assertEquals(1, meterRegistry.counter("drones.rejections", "operation", "load", "reason", "low_battery").count());
         }
 
         @Test
@@ -143,6 +329,59 @@ public class DroneServiceTest {
             OutputResult outputResult = droneService.loadDrone(serialNumber, medications);
             assertEquals(Status.FAILED, outputResult.getStatus());
             assertEquals("Drone can't be loaded with weight: 200gr, it can carry only: 150", outputResult.getMessage());
+            assertEquals(1, meterRegistry.counter("drones.rejections", "operation", "load", "reason", "overweight").count());
+        }
+    }
+
+    @Nested
+    class LoadDroneOptimistically {
+
+        DroneService optimisticDroneService = droneServiceFactory.create(droneRepository, LoadingMode.OPTIMISTIC);
+
+        @Test
+        void shouldLoadDroneWithMedications() throws IOException {
+            String serialNumber = "serial1";
+            Drone drone = new Drone(serialNumber, Model.Cruiserweight, 400, 60, State.IDLE);
+            medicationCatalog.register(List.of(new MedicationCatalogEntry("OLD", "Old", 10, "http://localhost/old")));
+            drone.setMedications(List.of(new Medication("OLD", 1)));
+            droneRepository.save(drone);
+
+            File file = new File("src/test/resources/data/medications.json");
+            List<MedicationDto> medications = objectMapper.readValue(file, new TypeReference<>() {});
+            OutputResult outputResult = optimisticDroneService.loadDrone(serialNumber, medications);
+
+            assertEquals(Status.SUCCESS, outputResult.getStatus());
+            drone.setState(State.LOADED);
+            assertEquals(DroneDto.fromDrone(drone), outputResult.getData());
+            Drone actual = droneRepository.findBySerialNumber(serialNumber);
+            assertNotNull(actual);
+            assertEquals(State.LOADED, actual.getState());
+            assertEquals(medications, droneService.getMedications(serialNumber).getData());
+        }
+
+        @Test
+        void shouldReturnFailedIfDroneIsNotIdle() throws IOException {
+            String serialNumber = "serial1";
+            droneRepository.save(new Drone(serialNumber, Model.Cruiserweight, 400, 60, State.DELIVERING));
+
+            File file = new File("src/test/resources/data/medications.json");
+            List<MedicationDto> medications = objectMapper.readValue(file, new TypeReference<>() {});
+            OutputResult outputResult = optimisticDroneService.loadDrone(serialNumber, medications);
+            assertEquals(Status.FAILED, outputResult.getStatus());
+            assertEquals("Can't load drone in state: DELIVERING, it should be IDLE", outputResult.getMessage());
+        }
+
+        @Test
+        void shouldReturnFailedIfMedicationsWeightMoreThenLimit() throws IOException {
+            String serialNumber = "serial1";
+            droneRepository.save(new Drone(serialNumber, Model.Lightweight, 150, 60, State.IDLE));
+
+            File file = new File("src/test/resources/data/medications.json");
+            List<MedicationDto> medications = objectMapper.readValue(file, new TypeReference<>() {});
+            OutputResult outputResult = optimisticDroneService.loadDrone(serialNumber, medications);
+            assertEquals(Status.FAILED, outputResult.getStatus());
+            assertEquals("Drone can't be loaded with weight: 200gr, it can carry only: 150", outputResult.getMessage());
+            assertEquals(State.IDLE, droneRepository.findBySerialNumber(serialNumber).getState());
         }
     }
 
@@ -172,6 +411,116 @@ public class DroneServiceTest {
            Assertions.assertThat(data)
                    .containsExactlyInAnyOrderElementsOf(expectedDrones);
        }
+
+       @Test
+       @SuppressWarnings("unchecked")
+       void shouldGetSortedPageOfAvailableDrones() {
+           List<Drone> drones = List.of(
+                   new Drone("serial1", Model.Lightweight, 150, 60, State.IDLE),
+                   new Drone("serial2", Model.Middleweight, 300, 25, State.IDLE),
+                   new Drone("serial3", Model.Cruiserweight, 400, 90, State.IDLE),
+                   new Drone("serial4", Model.Heavyweight, 500, 24, State.IDLE),
+                   new Drone("serial5", Model.Cruiserweight, 450, 30, State.IDLE),
+                   new Drone("serial6", Model.Heavyweight, 500, 60, State.LOADED)
+           );
+           droneRepository.saveAll(drones);
+
+           OutputResult outputResult = droneService.getAvailableDronesForLoading(0, PageRequest.of(0, 3, Sort.by(Sort.Direction.DESC, "weightLimit")));
+
+           assertEquals(Status.SUCCESS, outputResult.getStatus());
+           List<DroneDto> expected = Stream.of(drones.get(4), drones.get(2), drones.get(1))
+                   .map(DroneDto::fromDrone)
+                   .collect(Collectors.toList());
+           assertEquals(expected, (List<DroneDto>) outputResult.getData());
+
+           outputResult = droneService.getAvailableDronesForLoading(0, PageRequest.of(1, 3, Sort.by("batteryCapacity")));
+           expected = Stream.of(drones.get(2))
+                   .map(DroneDto::fromDrone)
+                   .collect(Collectors.toList());
+           assertEquals(expected, (List<DroneDto>) outputResult.getData());
+       }
+
+       @Test
+       @SuppressWarnings("unchecked")
+       void shouldGetOnlyDronesWhichCanCarryWeight() {
+           List<Drone> drones = List.of(
+                   new Drone("serial1", Model.Lightweight, 150, 60, State.IDLE),
+                   new Drone("serial2", Model.Middleweight, 300, 60, State.IDLE),
+                   new Drone("serial3", Model.Heavyweight, 500, 10, State.IDLE),
+                   new Drone("serial4", Model.Cruiserweight, 400, 60, State.IDLE)
+           );
+           droneRepository.saveAll(drones);
+
+           OutputResult outputResult = droneService.getAvailableDronesForLoading(300, PageRequest.of(0, 10, Sort.by("weightLimit")));
+
+           assertEquals(Status.SUCCESS, outputResult.getStatus());
+           List<DroneDto> expected = Stream.of(drones.get(1), drones.get(3))
+                   .map(DroneDto::fromDrone)
+                   .collect(Collectors.toList());
+           assertEquals(expected, (List<DroneDto>) outputResult.getData());
+       }
+
+       @Test
+       void shouldAnswerAvailableDronesFromFleetIndex() {
+           droneRepository.saveAll(List.of(
+                   new Drone("serial1", Model.Lightweight, 150, 60, State.IDLE),
+                   new Drone("serial2", Model.Middleweight, 300, 60, State.IDLE),
+                   new Drone("serial3", Model.Heavyweight, 500, 90, State.IDLE),
+                   new Drone("serial4", Model.Cruiserweight, 400, 60, State.LOADED)
+           ));
+           DroneRepository countingRepository = mock(DroneRepository.class, AdditionalAnswers.delegatesTo(droneRepository));
+           DroneServiceFactory indexedServiceFactory = new DroneServiceFactory(droneRepository, jdbcTemplate, transactionManager, true);
+           indexedServiceFactory.fleetIndex.rebuild();
+           DroneService indexedService = indexedServiceFactory.create(countingRepository, LoadingMode.PESSIMISTIC);
+
+           for (Pageable pageable : List.of(Pageable.unpaged(), PageRequest.of(0, 1, Sort.by(Sort.Direction.DESC, "batteryCapacity")),
+                   PageRequest.of(1, 1, Sort.by("weightLimit")))) {
+               assertEquals(droneService.getAvailableDronesForLoading(200, pageable), indexedService.getAvailableDronesForLoading(200, pageable));
+           }
+           verify(countingRepository, never()).findAvailable(anyInt(), anyInt(), any());
+       }
+
+       @Test
+       void shouldReturnFailedIfWeightIsNegative() {
+           OutputResult outputResult = droneService.getAvailableDronesForLoading(-1, Pageable.unpaged());
+           assertEquals(Status.FAILED, outputResult.getStatus());
+           assertEquals("Weight can't be negative", outputResult.getMessage());
+       }
+
+       @Test
+       void shouldReturnFailedIfSortPropertyIsNotSupported() {
+           OutputResult outputResult = droneService.getAvailableDronesForLoading(0, PageRequest.of(0, 3, Sort.by("serialNumber")));
+           assertEquals(Status.FAILED, outputResult.getStatus());
+           assertEquals("Can't sort available drones by: serialNumber", outputResult.getMessage());
+       }
+   }
+
+   @Nested
+   class GetCapacity {
+
+       @Test
+       void shouldCountDronesWhichCanCarryWeight() {
+           droneRepository.saveAll(List.of(
+                   new Drone("serial1", Model.Heavyweight, 500, 80, State.IDLE),
+                   new Drone("serial2", Model.Heavyweight, 450, 80, State.IDLE),
+                   new Drone("serial3", Model.Middleweight, 300, 80, State.IDLE),
+                   new Drone("serial4", Model.Lightweight, 100, 80, State.IDLE),
+                   new Drone("serial5", Model.Heavyweight, 500, 10, State.IDLE),
+                   new Drone("serial6", Model.Heavyweight, 500, 80, State.LOADED)
+           ));
+
+           OutputResult outputResult = droneService.getCapacity(200);
+
+           assertEquals(Status.SUCCESS, outputResult.getStatus());
+           assertEquals(new CapacityDto(200, 3, 1250, Map.of(Model.Heavyweight, 2, Model.Middleweight, 1)), outputResult.getData());
+       }
+
+       @Test
+       void shouldReturnFailedIfWeightIsNegative() {
+           OutputResult outputResult = droneService.getCapacity(-1);
+           assertEquals(Status.FAILED, outputResult.getStatus());
+           assertEquals("Weight can't be negative", outputResult.getMessage());
+       }
    }
 
    @Nested
@@ -182,19 +531,26 @@ public class DroneServiceTest {
        void shouldLoadMedications() {
            String serial = "serial1";
            Drone drone = new Drone(serial, Model.Middleweight, 300, 60, State.DELIVERED);
-           List<Medication> medications = List.of(
-                   new Medication("Name-1", 25, "CODE_01", "http://localhost/image1.jpg"),
-                   new Medication("Name-2", 50, "CODE_02", "http://localhost/image2.jpg"),
-                   new Medication("Name-3", 75, "CODE_03", "http://localhost/image3.jpg")
+           List<MedicationCatalogEntry> entries = List.of(
+                   new MedicationCatalogEntry("CODE_01", "Name-1", 25, "http://localhost/image1.jpg"),
+                   new MedicationCatalogEntry("CODE_02", "Name-2", 50, "http://localhost/image2.jpg"),
+                   new MedicationCatalogEntry("CODE_03", "Name-3", 75, "http://localhost/image3.jpg")
            );
-           drone.setMedications(medications);
+           medicationCatalog.register(entries);
+           drone.setMedications(List.of(
+                   new Medication("CODE_01", 1),
+                   new Medication("CODE_02", 2),
+                   new Medication("CODE_03", 1)
+           ));
            droneRepository.save(drone);
 
            OutputResult outputResult = droneService.getMedications(serial);
 
            assertEquals(Status.SUCCESS, outputResult.getStatus());
            List<MedicationDto> data = (List<MedicationDto>) outputResult.getData();
-           List<MedicationDto> expected = medications.stream().map(MedicationDto::fromMedication).collect(Collectors.toList());
+           List<MedicationDto> expected = Stream.of(entries.get(0), entries.get(1), entries.get(1), entries.get(2))
+                   .map(MedicationDto::fromCatalogEntry)
+                   .collect(Collectors.toList());
            Assertions.assertThat(data)
                    .containsExactlyInAnyOrderElementsOf(expected);
 
@@ -229,5 +585,357 @@ public class DroneServiceTest {
            assertEquals(Status.FAILED, outputResult.getStatus());
            assertEquals("Can't find drone with serial number: serial1", outputResult.getMessage());
        }
+
+       @Test
+       void shouldServeRepeatedReadsFromCache() {
+           String serialNumber = "serial1";
+           Drone drone = droneRepository.save(new Drone(serialNumber, Model.Lightweight, 150, 80, State.IDLE));
+           droneService.getBatteryLevel(serialNumber);
+
+           drone.setBatteryCapacity(50);
+           droneRepository.save(drone);
+           OutputResult outputResult = droneService.getBatteryLevel(serialNumber);
+
+           assertEquals(80, outputResult.getData());
+           assertEquals(1, meterRegistry.get("cache.gets").tag("cache", "drones").tag("result", "hit").functionCounter().count());
+           assertEquals(1, meterRegistry.get("cache.gets").tag("cache", "drones").tag("result", "miss").functionCounter().count());
+       }
+
+       @Test
+       void shouldNotCacheMissingDrone() {
+           String serialNumber = "serial1";
+           droneService.getBatteryLevel(serialNumber);
+           droneRepository.save(new Drone(serialNumber, Model.Lightweight, 150, 80, State.IDLE));
+
+           OutputResult outputResult = droneService.getBatteryLevel(serialNumber);
+           assertEquals(Status.SUCCESS, outputResult.getStatus());
+           assertEquals(80, outputResult.getData());
+       }
+   }
+
+   @Nested
+   class GetBatteryHistory {
+
+       @Test
+       @SuppressWarnings("unchecked")
+       void shouldReturnBatteryHistoryInRange() {
+           String serialNumber = "serial1";
+           Drone drone = droneRepository.save(new Drone(serialNumber, Model.Lightweight, 150, 80, State.IDLE));
+           Drone other = droneRepository.save(new Drone("serial2", Model.Lightweight, 150, 40, State.IDLE));
+           Instant now = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+           batteryAuditRepository.saveAll(List.of(partial(drone, 90), partial(other, 40)), now.minus(Duration.ofMinutes(20)));
+           batteryAuditRepository.saveAll(List.of(partial(drone, 85), partial(other, 40)), now.minus(Duration.ofMinutes(10)));
+           batteryAuditRepository.saveAll(List.of(partial(drone, 80), partial(other, 40)), now);
+
+           OutputResult outputResult = droneService.getBatteryHistory(serialNumber, now.minus(Duration.ofMinutes(15)), now.plusSeconds(1));
+
+           assertEquals(Status.SUCCESS, outputResult.getStatus());
+           List<BatteryAuditDto> expected = List.of(
+                   new BatteryAuditDto(85, State.IDLE, now.minus(Duration.ofMinutes(10))),
+                   new BatteryAuditDto(80, State.IDLE, now)
+           );
+           assertEquals(expected, outputResult.getData());
+       }
+
+       @Test
+       void shouldReturnFailedIfDroneNotFound() {
+           Instant now = Instant.now();
+           OutputResult outputResult = droneService.getBatteryHistory("serial1", now.minusSeconds(60), now);
+           assertEquals(Status.FAILED, outputResult.getStatus());
+           assertEquals("Can't find drone with serial number: serial1", outputResult.getMessage());
+       }
+
+       @Test
+       void shouldReturnFailedIfRangeIsNotValid() {
+           Instant from = Instant.parse("2023-07-01T10:00:00Z");
+           Instant to = Instant.parse("2023-07-01T09:00:00Z");
+           OutputResult outputResult = droneService.getBatteryHistory("serial1", from, to);
+           assertEquals(Status.FAILED, outputResult.getStatus());
+           assertEquals("Time range is not valid: 2023-07-01T10:00:00Z should be before 2023-07-01T09:00:00Z", outputResult.getMessage());
+       }
+
+       private DronePartial partial(Drone drone, int batteryCapacity) {
+           DronePartial partial = new DronePartial();
+           partial.setId(drone.getId());
+           partial.setSerialNumber(drone.getSerialNumber());
+           partial.setBatteryCapacity(batteryCapacity);
+           partial.setState(drone.getState());
+           return partial;
+       }
+   }
+
+   @Nested
+   class ReportTelemetry {
+
+       @Test
+       void shouldCoalesceReportsAndUpdateDronesOnFlush() {
+           droneRepository.save(new Drone("serial1", Model.Lightweight, 150, 80, State.IDLE));
+           droneRepository.save(new Drone("serial2", Model.Lightweight, 150, 60, State.DELIVERING));
+           droneRepository.save(new Drone("serial3", Model.Lightweight, 150, 40, State.IDLE));
+           List<TelemetryDto> reports = List.of(
+                   new TelemetryDto("serial1", 70, null),
+                   new TelemetryDto("serial2", 55, null),
+                   new TelemetryDto("serial1", null, State.LOADING),
+                   new TelemetryDto("serial2", 50, State.DELIVERED),
+                   new TelemetryDto("unknown", 10, null)
+           );
+
+           OutputResult outputResult = droneService.reportTelemetry(reports);
+
+           assertEquals(Status.SUCCESS, outputResult.getStatus());
+           assertEquals(new TelemetryResult(5, 0), outputResult.getData());
+           assertEquals(80, droneRepository.findBySerialNumber("serial1").getBatteryCapacity());
+           assertEquals(3, telemetryBuffer.size());
+
+           assertEquals(2, telemetryBuffer.flush());
+
+           assertEquals(0, telemetryBuffer.size());
+           Drone first = droneRepository.findBySerialNumber("serial1");
+           assertEquals(70, first.getBatteryCapacity());
+           assertEquals(State.LOADING, first.getState());
+           Drone second = droneRepository.findBySerialNumber("serial2");
+           assertEquals(50, second.getBatteryCapacity());
+           assertEquals(State.DELIVERED, second.getState());
+           Drone third = droneRepository.findBySerialNumber("serial3");
+           assertEquals(40, third.getBatteryCapacity());
+           assertEquals(State.IDLE, third.getState());
+       }
+
+       @Test
+       void shouldApplyOnlyAllowedReportedStatesAndRecordThem() {
+           droneRepository.save(new Drone("serial1", Model.Lightweight, 150, 60, State.DELIVERING));
+           droneRepository.save(new Drone("serial2", Model.Lightweight, 150, 60, State.RETURNING));
+           droneRepository.save(new Drone("serial3", Model.Lightweight, 150, 60, State.IDLE));
+
+           droneService.reportTelemetry(List.of(
+                   new TelemetryDto("serial1", 50, State.IDLE),
+                   new TelemetryDto("serial2", null, State.IDLE),
+                   new TelemetryDto("serial3", 10, State.LOADING)));
+
+           assertEquals(3, telemetryBuffer.flush());
+           Drone delivering = droneRepository.findBySerialNumber("serial1");
+           assertEquals(50, delivering.getBatteryCapacity());
+           assertEquals(State.DELIVERING, delivering.getState());
+           assertEquals(State.IDLE, droneRepository.findBySerialNumber("serial2").getState());
+           // reported battery level is too low to leave IDLE
+           assertEquals(State.IDLE, droneRepository.findBySerialNumber("serial3").getState());
+           List<String> transitions = jdbcTemplate.queryForList("SELECT d.serial_number || ' ' || t.from_state || ' ' || t.to_state " +
+                   "FROM drone_transition t JOIN drone d ON d.id = t.drone_id", String.class);
+           assertEquals(List.of("serial2 RETURNING IDLE"), transitions);
+       }
+
+       @Test
+       void shouldInvalidateCachedDroneOnFlush() {
+           String serialNumber = "serial1";
+           droneRepository.save(new Drone(serialNumber, Model.Lightweight, 150, 80, State.IDLE));
+           assertEquals(80, droneService.getBatteryLevel(serialNumber).getData());
+
+           droneService.reportTelemetry(List.of(new TelemetryDto(serialNumber, 75, null)));
+           telemetryBuffer.flush();
+
+           assertEquals(75, droneService.getBatteryLevel(serialNumber).getData());
+       }
+
+       @Test
+       void shouldReturnFailedIfReportsIsEmpty() {
+           OutputResult outputResult = droneService.reportTelemetry(Collections.emptyList());
+           assertEquals(Status.FAILED, outputResult.getStatus());
+           assertEquals("Telemetry reports list is empty", outputResult.getMessage());
+       }
+   }
+
+   @Nested
+   class TransitionDrones {
+
+       @Test
+       void shouldMoveMatchingDrones() {
+           droneRepository.saveAll(List.of(
+                   new Drone("serial1", Model.Lightweight, 150, 50, State.DELIVERED),
+                   new Drone("serial2", Model.Heavyweight, 500, 50, State.DELIVERED),
+                   new Drone("serial3", Model.Lightweight, 150, 50, State.DELIVERING)
+           ));
+
+           OutputResult outputResult = droneService.transitionDrones(new TransitionRequest(State.DELIVERED, State.RETURNING, null, Model.Lightweight));
+
+           assertEquals(Status.SUCCESS, outputResult.getStatus());
+           assertEquals(List.of(new TransitionDto("serial1", State.DELIVERED, State.RETURNING)), outputResult.getData());
+           assertEquals(State.RETURNING, droneRepository.findBySerialNumber("serial1").getState());
+           assertEquals(State.DELIVERED, droneRepository.findBySerialNumber("serial2").getState());
+       }
+
+       @Test
+       @SuppressWarnings("unchecked")
+       void shouldMoveDronesFromEveryAllowedStateIfFromIsNotGiven() {
+           droneRepository.saveAll(List.of(
+                   new Drone("serial1", Model.Lightweight, 150, 50, State.IDLE),
+                   new Drone("serial2", Model.Lightweight, 150, 10, State.IDLE),
+                   new Drone("serial3", Model.Lightweight, 150, 10, State.LOADING),
+                   new Drone("serial4", Model.Lightweight, 150, 50, State.DELIVERED)
+           ));
+
+           OutputResult outputResult = droneService.transitionDrones(new TransitionRequest(null, State.LOADED,
+                   List.of("serial1", "serial2", "serial3", "serial4"), null));
+
+           assertEquals(Status.SUCCESS, outputResult.getStatus());
+           Assertions.assertThat((List<TransitionDto>) outputResult.getData())
+                   .containsExactlyInAnyOrder(
+                           new TransitionDto("serial1", State.IDLE, State.LOADED),
+                           new TransitionDto("serial3", State.LOADING, State.LOADED));
+           assertEquals(State.IDLE, droneRepository.findBySerialNumber("serial2").getState());
+           assertEquals(State.DELIVERED, droneRepository.findBySerialNumber("serial4").getState());
+       }
+
+       @Test
+       void shouldReturnFailedIfTransitionIsNotAllowed() {
+           OutputResult outputResult = droneService.transitionDrones(new TransitionRequest(State.IDLE, State.DELIVERED, null, null));
+           assertEquals(Status.FAILED, outputResult.getStatus());
+           assertEquals("Can't move drone from state: IDLE to state: DELIVERED", outputResult.getMessage());
+       }
+
+       @Test
+       void shouldMoveDrone() {
+           droneRepository.save(new Drone("serial1", Model.Lightweight, 150, 50, State.LOADED));
+
+           OutputResult outputResult = droneService.transitionDrone("serial1", State.DELIVERING);
+
+           assertEquals(Status.SUCCESS, outputResult.getStatus());
+           assertEquals(new TransitionDto("serial1", State.LOADED, State.DELIVERING), outputResult.getData());
+           assertEquals(State.DELIVERING, droneRepository.findBySerialNumber("serial1").getState());
+       }
+
+       @Test
+       void shouldReturnFailedIfDroneCantMoveToState() {
+           droneRepository.save(new Drone("serial1", Model.Lightweight, 150, 50, State.LOADED));
+
+           OutputResult outputResult = droneService.transitionDrone("serial1", State.IDLE);
+
+           assertEquals(Status.FAILED, outputResult.getStatus());
+           assertEquals("Can't move drone from state: LOADED to state: IDLE", outputResult.getMessage());
+       }
+
+       @Test
+       void shouldReturnFailedIfBatteryIsLowForLeavingIdle() {
+           droneRepository.save(new Drone("serial1", Model.Lightweight, 150, 20, State.IDLE));
+
+           OutputResult outputResult = droneService.transitionDrone("serial1", State.LOADING);
+
+           assertEquals(Status.FAILED, outputResult.getStatus());
+           assertEquals("Can't move drone from state: IDLE when it's battery level below 25, actual level: 20", outputResult.getMessage());
+       }
+
+       @Test
+       void shouldRecordTransitionOnLoad() {
+           String serialNumber = "serial1";
+           Drone drone = droneRepository.save(new Drone(serialNumber, Model.Cruiserweight, 400, 60, State.IDLE));
+
+           droneService.loadDrone(serialNumber, List.of(new MedicationDto("Name-1", 50, "CODE_01", "http://localhost/image1")));
+
+           assertEquals(List.of("IDLE->LOADED"), jdbcTemplate.queryForList("SELECT from_state || '->' || to_state FROM drone_transition " +
+                   "WHERE drone_id = ?", String.class, drone.getId()));
+       }
+   }
+
+   @Nested
+   class PlanLoading {
+
+       @Test
+       @SuppressWarnings("unchecked")
+       void shouldLoadAllPlannedDrones() {
+           droneRepository.saveAll(List.of(
+                   new Drone("serial1", Model.Heavyweight, 500, 80, State.IDLE),
+                   new Drone("serial2", Model.Middleweight, 300, 80, State.IDLE),
+                   new Drone("serial3", Model.Heavyweight, 500, 10, State.IDLE),
+                   new Drone("serial4", Model.Lightweight, 100, 80, State.IDLE)
+           ));
+           MedicationDto heavy = new MedicationDto("Heavy", 250, "HEAVY", "http://localhost/heavy");
+           MedicationDto light = new MedicationDto("Light", 100, "LIGHT", "http://localhost/light");
+           List<MedicationDto> order = List.of(light, heavy, heavy, heavy);
+
+           OutputResult outputResult = droneService.planLoading(order, PlanningMode.FIRST_FIT);
+
+           assertEquals(Status.SUCCESS, outputResult.getStatus());
+           Assertions.assertThat((List<PlannedLoadDto>) outputResult.getData())
+                   .containsExactlyInAnyOrder(
+                           new PlannedLoadDto("serial1", 500, Map.of("HEAVY", 2)),
+                           new PlannedLoadDto("serial2", 250, Map.of("HEAVY", 1)),
+                           new PlannedLoadDto("serial4", 100, Map.of("LIGHT", 1)));
+           Assertions.assertThat(outputResult.getData().toString()).doesNotContain("serial3");
+           assertEquals(State.LOADED, droneRepository.findBySerialNumber("serial1").getState());
+           assertEquals(List.of(new Medication("HEAVY", 2)), droneRepository.findBySerialNumber("serial1").getMedications());
+           assertEquals(State.IDLE, droneRepository.findBySerialNumber("serial3").getState());
+           assertEquals(3, jdbcTemplate.queryForObject("SELECT count(*) FROM drone_transition WHERE to_state = 'LOADED'", Integer.class));
+       }
+
+       @Test
+       void shouldLoadNothingIfMedicationsDontFit() {
+           droneRepository.saveAll(List.of(
+                   new Drone("serial1", Model.Heavyweight, 500, 80, State.IDLE),
+                   new Drone("serial2", Model.Middleweight, 300, 80, State.IDLE)
+           ));
+           MedicationDto heavy = new MedicationDto("Heavy", 250, "HEAVY", "http://localhost/heavy");
+
+           OutputResult outputResult = droneService.planLoading(List.of(heavy, heavy, heavy, heavy), PlanningMode.BEST_FIT);
+
+           assertEquals(Status.FAILED, outputResult.getStatus());
+           assertEquals("Can't plan loading of 4 medications, 2 available drones can't carry them", outputResult.getMessage());
+           assertEquals(State.IDLE, droneRepository.findBySerialNumber("serial1").getState());
+           assertEquals(State.IDLE, droneRepository.findBySerialNumber("serial2").getState());
+           assertEquals(Map.of(), medicationCatalog.findAll(List.of("HEAVY")));
+       }
+
+       @Test
+       void shouldPlanAgainIfChosenDroneIsClaimedConcurrently() {
+           droneRepository.saveAll(List.of(
+                   new Drone("serial1", Model.Heavyweight, 500, 80, State.IDLE),
+                   new Drone("serial2", Model.Middleweight, 300, 80, State.IDLE)
+           ));
+           DroneRepository racingRepository = mock(DroneRepository.class, AdditionalAnswers.delegatesTo(droneRepository));
+           doAnswer(invocation -> {
+               List<DronePartial> drones = droneRepository.findAvailableByWeightLimit(invocation.getArgument(0));
+               jdbcTemplate.update("UPDATE drone SET state = 'LOADING' WHERE serial_number = 'serial1'");
+               return drones;
+           }).doAnswer(AdditionalAnswers.delegatesTo(droneRepository)).when(racingRepository).findAvailableByWeightLimit(anyInt());
+           DroneService racingService = droneServiceFactory.create(racingRepository, LoadingMode.PESSIMISTIC);
+           MedicationDto heavy = new MedicationDto("Heavy", 250, "HEAVY", "http://localhost/heavy");
+
+           OutputResult outputResult = racingService.planLoading(List.of(heavy), PlanningMode.FIRST_FIT);
+
+           assertEquals(Status.SUCCESS, outputResult.getStatus());
+           assertEquals(List.of(new PlannedLoadDto("serial2", 250, Map.of("HEAVY", 1))), outputResult.getData());
+           assertEquals(State.LOADING, droneRepository.findBySerialNumber("serial1").getState());
+           assertEquals(List.of(), droneRepository.findBySerialNumber("serial1").getMedications());
+           assertEquals(1, jdbcTemplate.queryForObject("SELECT count(*) FROM drone_transition WHERE to_state = 'LOADED'", Integer.class));
+       }
+
+       @Test
+       void shouldReturnFailedIfChosenDronesAreClaimedOnEveryAttempt() {
+           droneRepository.save(new Drone("serial1", Model.Heavyweight, 500, 80, State.IDLE));
+           DroneRepository racingRepository = mock(DroneRepository.class, AdditionalAnswers.delegatesTo(droneRepository));
+           doReturn(false).when(racingRepository).updateAllStatesIfLoadable(any(), anyInt(), any());
+           DroneService racingService = droneServiceFactory.create(racingRepository, LoadingMode.PESSIMISTIC);
+           MedicationDto heavy = new MedicationDto("Heavy", 250, "HEAVY", "http://localhost/heavy");
+
+           OutputResult outputResult = racingService.planLoading(List.of(heavy), PlanningMode.FIRST_FIT);
+
+           assertEquals(Status.FAILED, outputResult.getStatus());
+           assertEquals("Can't plan loading of 1 medications, available drones are changed concurrently, try again later",
+                   outputResult.getMessage());
+           assertTrue(outputResult.isRetryable());
+           verify(racingRepository, times(4)).updateAllStatesIfLoadable(any(), anyInt(), any());
+           assertEquals(State.IDLE, droneRepository.findBySerialNumber("serial1").getState());
+           assertEquals(Map.of(), medicationCatalog.findAll(List.of("HEAVY")));
+       }
+
+       @Test
+       void shouldReplaceMedicationsOfPreviousDelivery() {
+           Drone drone = new Drone("serial1", Model.Heavyweight, 500, 80, State.IDLE);
+           medicationCatalog.register(List.of(new MedicationCatalogEntry("OLD", "Old", 10, "http://localhost/old")));
+           drone.setMedications(List.of(new Medication("OLD", 3)));
+           droneRepository.save(drone);
+
+           droneService.planLoading(List.of(new MedicationDto("Name-1", 50, "CODE_01", "http://localhost/image1")), PlanningMode.FIRST_FIT);
+
+           assertEquals(List.of(new Medication("CODE_01", 1)), droneRepository.findBySerialNumber("serial1").getMedications());
+       }
    }
 }
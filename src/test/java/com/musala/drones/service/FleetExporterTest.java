@@ -0,0 +1,52 @@
+package com.musala.drones.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.musala.drones.DBConfiguration;
+import com.musala.drones.entity.Drone;
+import com.musala.drones.entity.Medication;
+import com.musala.drones.entity.Model;
+import com.musala.drones.entity.State;
+import com.musala.drones.repository.DroneRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.data.jdbc.DataJdbcTest;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@DataJdbcTest
+@Import(DBConfiguration.class)
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+public class FleetExporterTest {
+
+    @Autowired
+    DroneRepository droneRepository;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Test
+    void shouldWriteOneDronePerLine() throws Exception {
+        jdbcTemplate.update("INSERT INTO medication_catalog (code, name, weight, image) VALUES ('CODE_01', 'Name-1', 50, 'http://localhost/image1')");
+        Drone loaded = new Drone("12345", Model.Heavyweight, 500, 80, State.LOADED);
+        loaded.setMedications(List.of(new Medication("CODE_01", 2)));
+        droneRepository.saveAll(List.of(loaded, new Drone("12346", Model.Lightweight, 100, 30, State.IDLE)));
+        FleetExporter exporter = new FleetExporter(droneRepository, new ObjectMapper(), 1);
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        int exported = exporter.export(output);
+
+        assertEquals(2, exported);
+        assertEquals("{\"serialNumber\":\"12345\",\"model\":\"Heavyweight\",\"weightLimit\":500,\"batteryCapacity\":80,\"state\":\"LOADED\"," +
+                        "\"medications\":[{\"code\":\"CODE_01\",\"quantity\":2}]}\n" +
+                        "{\"serialNumber\":\"12346\",\"model\":\"Lightweight\",\"weightLimit\":100,\"batteryCapacity\":30,\"state\":\"IDLE\"," +
+                        "\"medications\":[]}\n",
+                output.toString(StandardCharsets.UTF_8));
+    }
+}
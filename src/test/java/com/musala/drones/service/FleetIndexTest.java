@@ -0,0 +1,180 @@
+package com.musala.drones.service;
+
+import com.musala.drones.DBConfiguration;
+import com.musala.drones.entity.Drone;
+import com.musala.drones.entity.Model;
+import com.musala.drones.entity.ModelCapacity;
+import com.musala.drones.entity.State;
+import com.musala.drones.repository.DroneRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.data.jdbc.DataJdbcTest;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@DataJdbcTest
+@Import(DBConfiguration.class)
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+public class FleetIndexTest {
+
+    DroneRepository droneRepository;
+    JdbcTemplate jdbcTemplate;
+    PlatformTransactionManager transactionManager;
+    DroneCache droneCache;
+    List<Runnable> refreshes = new ArrayList<>();
+    FleetIndex fleetIndex;
+
+    @Autowired
+    public FleetIndexTest(DroneRepository droneRepository, JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.droneRepository = droneRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionManager = transactionManager;
+        this.droneCache = new DroneCache(droneRepository, Duration.ofMinutes(1), 100, new SimpleMeterRegistry());
+        this.fleetIndex = new FleetIndex(droneRepository, droneCache, refreshes::add, true, 7);
+    }
+
+    @Test
+    void shouldCountAvailableDronesLikeDatabase() {
+        jdbcTemplate.update("INSERT INTO drone (serial_number, model, weight_limit, battery_capacity, state) " +
+                "SELECT 'serial' || g, (ARRAY['Lightweight', 'Middleweight', 'Cruiserweight', 'Heavyweight'])[g % 4 + 1], " +
+                "(g * 37) % 501, (g * 13) % 101, (ARRAY['IDLE', 'IDLE', 'LOADED', 'DELIVERING'])[g % 4 + 1] FROM generate_series(1, 200) g");
+        fleetIndex.rebuild();
+
+        for (int weight : new int[]{0, 1, 100, 250, 499, 500, 501}) {
+            assertCountsMatchDatabase(weight);
+        }
+        assertEquals(0, fleetIndex.countMismatches());
+        assertEquals(50, fleetIndex.countByState(State.LOADED));
+    }
+
+    @Test
+    void shouldFindAvailableDronesLikeDatabase() {
+        jdbcTemplate.update("INSERT INTO drone (serial_number, model, weight_limit, battery_capacity, state) " +
+                "SELECT 'serial' || g, (ARRAY['Lightweight', 'Middleweight', 'Cruiserweight', 'Heavyweight'])[g % 4 + 1], " +
+                "(g * 37) % 501, (g * 13) % 101, (ARRAY['IDLE', 'IDLE', 'LOADED', 'DELIVERING'])[g % 4 + 1] FROM generate_series(1, 200) g");
+        fleetIndex.rebuild();
+        // unsorted slots of drones added after the rebuild are searched as well
+        droneRepository.save(new Drone("serial201", Model.Heavyweight, 450, 80, State.IDLE));
+        fleetIndex.refresh(List.of("serial201"));
+
+        List<Pageable> pageables = List.of(Pageable.unpaged(),
+                PageRequest.of(2, 7, Sort.by(Sort.Direction.DESC, "weightLimit")),
+                PageRequest.of(0, 10, Sort.by("batteryCapacity").and(Sort.by(Sort.Direction.DESC, "weightLimit"))),
+                PageRequest.of(100, 10));
+        for (int weight : new int[]{0, 250, 450, 501}) {
+            for (Pageable pageable : pageables) {
+                assertEquals(droneRepository.findAvailable(DroneServiceImpl.LOW_BATTERY_LEVEL, weight, pageable),
+                        fleetIndex.findAvailable(weight, pageable), "weight " + weight + ", " + pageable);
+            }
+        }
+    }
+
+    @Test
+    void shouldFollowRefreshedDrones() {
+        droneRepository.saveAll(List.of(
+                new Drone("serial1", Model.Heavyweight, 500, 80, State.IDLE),
+                new Drone("serial2", Model.Middleweight, 300, 80, State.LOADED)
+        ));
+        fleetIndex.rebuild();
+
+        jdbcTemplate.update("UPDATE drone SET state = 'LOADED' WHERE serial_number = 'serial1'");
+        jdbcTemplate.update("UPDATE drone SET state = 'IDLE' WHERE serial_number = 'serial2'");
+        droneRepository.save(new Drone("serial3", Model.Lightweight, 100, 90, State.IDLE));
+        fleetIndex.refresh(List.of("serial1", "serial2", "serial3"));
+
+        assertCountsMatchDatabase(0);
+        assertCountsMatchDatabase(200);
+        assertEquals(0, fleetIndex.countMismatches());
+    }
+
+    @Test
+    void shouldRefreshCommittedChangesOnIndexExecutor() {
+        droneRepository.saveAll(List.of(
+                new Drone("serial1", Model.Heavyweight, 500, 80, State.IDLE),
+                new Drone("serial2", Model.Middleweight, 300, 80, State.IDLE)
+        ));
+        fleetIndex.rebuild();
+        jdbcTemplate.update("UPDATE drone SET state = 'LOADED'");
+
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        transactionTemplate.executeWithoutResult(status -> {
+            droneCache.invalidate(List.of("serial1"));
+            droneCache.invalidate(List.of("serial2"));
+        });
+
+        // the writer only queues the changes, both are read by one refresh
+        assertEquals(1, refreshes.size());
+        assertEquals(2, fleetIndex.countByState(State.IDLE));
+        refreshes.get(0).run();
+        assertEquals(2, fleetIndex.countByState(State.LOADED));
+        assertEquals(0, fleetIndex.countMismatches());
+    }
+
+    @Test
+    void shouldKeepAnsweringAfterManyNewDronesAreSorted() {
+        droneRepository.save(new Drone("serial0", Model.Heavyweight, 500, 80, State.IDLE));
+        fleetIndex.rebuild();
+
+        jdbcTemplate.update("INSERT INTO drone (serial_number, model, weight_limit, battery_capacity, state) " +
+                "SELECT 'serial' || g, 'Lightweight', g % 501, 50, 'IDLE' FROM generate_series(1, 1100) g");
+        fleetIndex.refresh(IntStream.rangeClosed(1, 1100).mapToObj(i -> "serial" + i).collect(Collectors.toList()));
+
+        assertCountsMatchDatabase(250);
+        assertEquals(0, fleetIndex.countMismatches());
+    }
+
+    @Test
+    void shouldFindDifferencesFromDatabase() {
+        droneRepository.saveAll(List.of(
+                new Drone("serial1", Model.Heavyweight, 500, 80, State.IDLE),
+                new Drone("serial2", Model.Middleweight, 300, 80, State.IDLE),
+                new Drone("serial3", Model.Middleweight, 300, 80, State.IDLE)
+        ));
+        fleetIndex.rebuild();
+
+        jdbcTemplate.update("UPDATE drone SET battery_capacity = 10 WHERE serial_number = 'serial1'");
+        jdbcTemplate.update("DELETE FROM drone WHERE serial_number = 'serial2'");
+        droneRepository.save(new Drone("serial4", Model.Lightweight, 100, 90, State.IDLE));
+        assertEquals(3, fleetIndex.countMismatches());
+
+        fleetIndex.rebuild();
+        assertEquals(0, fleetIndex.countMismatches());
+        assertCountsMatchDatabase(0);
+    }
+
+    private void assertCountsMatchDatabase(int weight) {
+        int[] dronesByModel = new int[Model.values().length];
+        long[] weightLimitByModel = new long[Model.values().length];
+        int count = fleetIndex.countAvailable(weight, dronesByModel, weightLimitByModel);
+
+        int[] expectedDrones = new int[Model.values().length];
+        long[] expectedWeightLimit = new long[Model.values().length];
+        int expectedCount = 0;
+        for (ModelCapacity capacity : droneRepository.countAvailableByModel(DroneServiceImpl.LOW_BATTERY_LEVEL, weight)) {
+            expectedDrones[capacity.getModel().ordinal()] = capacity.getDrones();
+            expectedWeightLimit[capacity.getModel().ordinal()] = capacity.getWeightLimit();
+            expectedCount += capacity.getDrones();
+        }
+        assertEquals(expectedCount, count, "drones for weight " + weight);
+        assertArrayEquals(expectedDrones, dronesByModel);
+        assertArrayEquals(expectedWeightLimit, weightLimitByModel);
+    }
+}
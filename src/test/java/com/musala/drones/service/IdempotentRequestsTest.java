@@ -0,0 +1,184 @@
+package com.musala.drones.service;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.musala.drones.DBConfiguration;
+import com.musala.drones.entity.Model;
+import com.musala.drones.model.DroneDto;
+import com.musala.drones.model.OutputResult;
+import com.musala.drones.model.Status;
+import com.musala.drones.repository.IdempotencyKeyRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.data.jdbc.DataJdbcTest;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Keys are claimed in transactions of their own here, so the test doesn't run in one and cleans up after itself.
+ */
+@DataJdbcTest
+@Import(DBConfiguration.class)
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class IdempotentRequestsTest {
+
+    JdbcTemplate jdbcTemplate;
+    IdempotencyKeyRepository idempotencyKeyRepository;
+    PlatformTransactionManager transactionManager;
+    ObjectMapper objectMapper = new ObjectMapper().setSerializationInclusion(JsonInclude.Include.NON_NULL);
+    AtomicInteger runs = new AtomicInteger();
+
+    @Autowired
+    public IdempotentRequestsTest(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.idempotencyKeyRepository = new IdempotencyKeyRepository(jdbcTemplate);
+        this.transactionManager = transactionManager;
+    }
+
+    @AfterEach
+    void deleteKeys() {
+        jdbcTemplate.update("DELETE FROM idempotency_key");
+    }
+
+    @Test
+    void shouldRunRequestOnceAndReplayItsResult() throws Exception {
+        IdempotentRequests idempotentRequests = idempotentRequests();
+        String fingerprint = idempotentRequests.fingerprint("register", drone());
+
+        OutputResult result = idempotentRequests.execute("key-1", fingerprint, register());
+
+        assertSame(result, idempotentRequests.replay("key-1", fingerprint));
+        // another instance doesn't have the key cached and finds the result in the database
+        OutputResult stored = idempotentRequests().execute("key-1", fingerprint, register());
+        assertEquals(objectMapper.writeValueAsString(result), objectMapper.writeValueAsString(stored));
+        assertEquals(1, runs.get());
+    }
+
+    @Test
+    void shouldRejectKeyReusedForAnotherRequest() {
+        IdempotentRequests idempotentRequests = idempotentRequests();
+        idempotentRequests.execute("key-1", idempotentRequests.fingerprint("register", drone()), register());
+
+        DroneDto anotherDrone = new DroneDto("54321", Model.Lightweight, 200, 55);
+        String fingerprint = idempotentRequests.fingerprint("register", anotherDrone);
+
+        OutputResult replayed = idempotentRequests.replay("key-1", fingerprint);
+        OutputResult stored = idempotentRequests().execute("key-1", fingerprint, register());
+        for (OutputResult result : List.of(replayed, stored)) {
+            assertEquals(Status.FAILED, result.getStatus());
+            assertEquals("Idempotency key was already used for another request", result.getMessage());
+        }
+        assertEquals(1, runs.get());
+    }
+
+    @Test
+    void shouldLeaveKeyUnusedIfRequestFails() {
+        IdempotentRequests idempotentRequests = idempotentRequests();
+        String fingerprint = idempotentRequests.fingerprint("register", drone());
+
+        assertThrows(IllegalStateException.class, () -> idempotentRequests.execute("key-1", fingerprint, () -> {
+            throw new IllegalStateException();
+        }));
+
+        assertNull(idempotentRequests.replay("key-1", fingerprint));
+        assertEquals(Status.SUCCESS, idempotentRequests.execute("key-1", fingerprint, register()).getStatus());
+        assertEquals(1, runs.get());
+    }
+
+    @Test
+    void shouldLeaveKeyUnusedIfRequestConflicts() {
+        IdempotentRequests idempotentRequests = idempotentRequests();
+        String fingerprint = idempotentRequests.fingerprint("register", drone());
+
+        OutputResult conflict = idempotentRequests.execute("key-1", fingerprint, () -> {
+            runs.incrementAndGet();
+            return OutputResult.error("Drone is changed concurrently, try again later").setRetryable(true);
+        });
+
+        assertEquals(Status.FAILED, conflict.getStatus());
+        assertNull(idempotentRequests.replay("key-1", fingerprint));
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT count(*) FROM idempotency_key", Integer.class));
+        assertEquals(Status.SUCCESS, idempotentRequests.execute("key-1", fingerprint, register()).getStatus());
+        assertEquals(2, runs.get());
+    }
+
+    @Test
+    void shouldRunRequestAgainOnceKeyExpired() {
+        String fingerprint = idempotentRequests().fingerprint("register", drone());
+        idempotentRequests().execute("key-1", fingerprint, register());
+        idempotentRequests().execute("key-2", fingerprint, register());
+        jdbcTemplate.update("UPDATE idempotency_key SET created_at = now() - interval '2 days' WHERE request_key = 'key-1'");
+
+        idempotentRequests().execute("key-1", fingerprint, register());
+        idempotentRequests().execute("key-2", fingerprint, register());
+
+        assertEquals(3, runs.get());
+        jdbcTemplate.update("UPDATE idempotency_key SET created_at = now() - interval '2 days' WHERE request_key = 'key-2'");
+        assertEquals(1, idempotencyKeyRepository.deleteExpired(Duration.ofDays(1)));
+    }
+
+    @Test
+    void shouldRunConcurrentRetriesOnce() throws Exception {
+        String fingerprint = idempotentRequests().fingerprint("register", drone());
+        CountDownLatch firstRunning = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<OutputResult> first = executor.submit(() -> idempotentRequests().execute("key-1", fingerprint, () -> {
+                firstRunning.countDown();
+                try {
+                    // keeps the key claimed while the retry arrives
+                    Thread.sleep(500);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return register().get();
+            }));
+            firstRunning.await();
+            Future<OutputResult> retry = executor.submit(() -> idempotentRequests().execute("key-1", fingerprint, register()));
+
+            assertEquals(objectMapper.writeValueAsString(first.get(10, TimeUnit.SECONDS)),
+                    objectMapper.writeValueAsString(retry.get(10, TimeUnit.SECONDS)));
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(1, runs.get());
+    }
+
+    private IdempotentRequests idempotentRequests() {
+        return new IdempotentRequests(idempotencyKeyRepository, objectMapper, transactionManager, Duration.ofDays(1), 100,
+                new SimpleMeterRegistry());
+    }
+
+    private static DroneDto drone() {
+        return new DroneDto("12345", Model.Lightweight, 200, 55);
+    }
+
+    private Supplier<OutputResult> register() {
+        return () -> {
+            runs.incrementAndGet();
+            return OutputResult.success(drone());
+        };
+    }
+}
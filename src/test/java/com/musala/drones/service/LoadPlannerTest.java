@@ -0,0 +1,63 @@
+package com.musala.drones.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class LoadPlannerTest {
+
+    @Test
+    void firstFitShouldTakeFirstDroneWithEnoughRoom() {
+        int[] assignment = LoadPlanner.plan(new int[]{6, 5, 2}, new int[]{10, 7}, PlanningMode.FIRST_FIT);
+        assertArrayEquals(new int[]{0, 1, 0}, assignment);
+    }
+
+    @Test
+    void bestFitShouldTakeDroneWithLeastRoomLeft() {
+        int[] assignment = LoadPlanner.plan(new int[]{6, 5, 2}, new int[]{10, 7}, PlanningMode.BEST_FIT);
+        assertArrayEquals(new int[]{0, 1, 1}, assignment);
+    }
+
+    @Test
+    void bestFitShouldUseLargestDroneWhenNoUsedDroneFits() {
+        int[] assignment = LoadPlanner.plan(new int[]{3, 9, 4}, new int[]{5, 10, 8}, PlanningMode.BEST_FIT);
+        assertArrayEquals(new int[]{2, 1, 2}, assignment);
+    }
+
+    @ParameterizedTest
+    @EnumSource(PlanningMode.class)
+    void shouldReturnNullIfItemsDontFit(PlanningMode mode) {
+        assertNull(LoadPlanner.plan(new int[]{11}, new int[]{10, 5}, mode));
+        assertNull(LoadPlanner.plan(new int[]{6, 6}, new int[]{10}, mode));
+        assertNull(LoadPlanner.plan(new int[]{1}, new int[0], mode));
+    }
+
+    @ParameterizedTest
+    @EnumSource(PlanningMode.class)
+    void shouldNeverOverloadDrones(PlanningMode mode) {
+        Random random = new Random(42);
+        for (int round = 0; round < 100; round++) {
+            int[] capacities = random.ints(1 + random.nextInt(50), 0, 501).toArray();
+            int[] weights = random.ints(random.nextInt(200), 0, 200).toArray();
+            int[] assignment = LoadPlanner.plan(weights, capacities, mode);
+            if (assignment == null) {
+                continue;
+            }
+            int[] loaded = new int[capacities.length];
+            for (int i = 0; i < weights.length; i++) {
+                loaded[assignment[i]] += weights[i];
+            }
+            for (int i = 0; i < capacities.length; i++) {
+                assertTrue(loaded[i] <= capacities[i]);
+            }
+        }
+        assertNotNull(LoadPlanner.plan(new int[]{500, 250, 250}, new int[]{500, 500}, mode));
+    }
+}
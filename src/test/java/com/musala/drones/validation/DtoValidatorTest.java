@@ -0,0 +1,95 @@
+package com.musala.drones.validation;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.musala.drones.model.DroneDto;
+import com.musala.drones.model.DroneList;
+import com.musala.drones.model.MedicationDto;
+import com.musala.drones.model.MedicationList;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validation;
+import javax.validation.Validator;
+import java.io.File;
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class DtoValidatorTest {
+
+    private final Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @ParameterizedTest
+    @CsvSource(delimiter = '|', value = {
+            "drone_serial_not_valid.json|DroneDto|serialNumber: Serial number is mandatory",
+            "drone_model_not_valid.json|DroneDto|model: Model is mandatory",
+            "drone_weight_not_valid.json|DroneDto|weightLimit: Weight limit can't be more than 500 gr",
+            "drone_battery_not_valid.json|DroneDto|batteryCapacity: Battery capacity should be in percentage",
+            "drones_list_weight_not_valid.json|DroneList|drones[1].weightLimit: Weight limit can't be more than 500 gr",
+            "medications_list_name_not_valid.json|MedicationList|medications[1].name: Name allows only letters, numbers, ‘-‘, ‘_’",
+            "medications_list_weight_not_valid.json|MedicationList|medications[0].weight: Weight can't be negative",
+            "medications_list_code_not_valid.json|MedicationList|medications[0].code: Code allows only upper case letters, underscore and numbers",
+            "medications_list_image_not_valid.json|MedicationList|medications[1].image: must be a valid URL",
+    })
+    void shouldReportFixturesWithPathAndMessage(String fixture, String type, String expected) throws Exception {
+        Class<?> requestType = Class.forName("com.musala.drones.model." + type);
+        Object request = objectMapper.readValue(new File("src/test/resources/data/" + fixture), requestType);
+
+        assertEquals(List.of(expected), violations(request));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"drone.json", "drones_list.json", "medications_list.json"})
+    void shouldAcceptValidFixtures(String fixture) throws IOException {
+        Class<?> requestType = fixture.startsWith("drones") ? DroneList.class
+                : fixture.startsWith("drone") ? DroneDto.class : MedicationList.class;
+        Object request = objectMapper.readValue(new File("src/test/resources/data/" + fixture), requestType);
+
+        assertTrue(violations(request).isEmpty());
+    }
+
+    @Test
+    void shouldStopAtFirstViolation() {
+        MedicationList medicationList = new MedicationList();
+        medicationList.setMedications(List.of(
+                new MedicationDto("Name-1", 10, "CODE_1", "http://localhost/image1"),
+                new MedicationDto(" ", -1, "code", "image"),
+                new MedicationDto(null, null, null, null)));
+
+        assertEquals(List.of("medications[1].name: Name is mandatory"), violations(medicationList));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"http://localhost/image1", "https://example.com:8443/a.png?x=1#y", "HTTP://EXAMPLE.COM",
+            "http://", "http://host:", "http://host:123456/", "http://user@host/", "http://[::1]/", "http://[::1/",
+            "http://host:port/", "http:relative", "ftp://host/file", "file:/tmp/image", "jar:file:/a.jar!/b",
+            "jar:file:/a.jar", "mailto:a@b.c", "123", "localhost/image", "unknown://host", "://host", "http://ex ample.com/"})
+    void shouldCheckUrlsLikeUrlConstructor(String url) {
+        boolean parsed;
+        try {
+            new URL(url);
+            parsed = true;
+        } catch (MalformedURLException e) {
+            parsed = false;
+        }
+
+        assertEquals(parsed, FieldChecks.isUrl(url), url);
+    }
+
+    private List<String> violations(Object request) {
+        Set<ConstraintViolation<Object>> violations = validator.validate(request);
+        return violations.stream()
+                .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                .collect(Collectors.toList());
+    }
+}